@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приложение без веб-слоя поверх H2 в памяти, заполненной {@link DatasetGenerator} при старте.
+ * Общее для всех потоков бенчмарка: многопоточные прогоны конкурируют за одну базу и пул соединений.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    // число фильмов и лайков, см. DatasetSpec.ofFilms
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param("42")
+    public long seed;
+
+    ConfigurableApplicationContext context;
+    FilmStorage filmStorage;
+    UserService userService;
+    DatasetSpec spec;
+
+    @Setup(Level.Trial)
+    public void start() {
+        spec = DatasetSpec.ofFilms(size, seed);
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // аргументы командной строки, а не properties(): те перекрываются application.properties
+                .run(arguments().toArray(String[]::new));
+
+        filmStorage = context.getBean("filmDbStorage", FilmStorage.class);
+        userService = context.getBean(UserService.class);
+    }
+
+    List<String> arguments() {
+        return new ArrayList<>(List.of("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                "--spring.jmx.enabled=false",
+                "--filmorate.dataset.enabled=true",
+                "--filmorate.dataset.films=" + size,
+                "--filmorate.dataset.seed=" + seed,
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF",
+                // фоновые пересчёты не должны попадать в замеры
+                "--filmorate.popular.resync-interval-ms=86400000",
+                "--filmorate.suggestions.refresh-interval-ms=86400000"));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        // с закрытием пула закрывается и база в памяти
+        context.close();
+    }
+}
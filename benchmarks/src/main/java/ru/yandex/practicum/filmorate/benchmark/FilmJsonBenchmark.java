@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON всего каталога в проекции COUNTS: через объекты Film и Jackson ({@code objects}) против записи прямо
+ * из выборки ({@code stream}). Выход отбрасывается; с {@code -prof gc} сравнивается {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilmJsonBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Json {
+        ObjectMapper objectMapper;
+
+        @Setup(Level.Trial)
+        public void start(ApplicationState app) {
+            objectMapper = app.context.getBean(ObjectMapper.class);
+        }
+    }
+
+    @Benchmark
+    public void objects(ApplicationState app, Json json) throws IOException {
+        json.objectMapper.writeValue(OutputStream.nullOutputStream(), app.filmStorage.findAll(FilmProjection.COUNTS));
+    }
+
+    @Benchmark
+    public void stream(ApplicationState app, Json json) throws IOException {
+        try (JsonGenerator generator = json.objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            app.filmStorage.writeAll(generator);
+        }
+    }
+}
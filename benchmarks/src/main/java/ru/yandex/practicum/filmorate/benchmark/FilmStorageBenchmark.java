@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтения {@code FilmDbStorage}: маппинг строк, догрузка жанров (COUNTS) и жанров с лайками (FULL).
+ * Однопоточный и конкурентный прогоны отличаются только числом потоков.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public abstract class FilmStorageBenchmark {
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"COUNTS", "FULL"})
+    public FilmProjection projection;
+
+    @Benchmark
+    public Collection<Film> findMostPopular10(ApplicationState app) {
+        return app.filmStorage.findMostPopular(10, projection);
+    }
+
+    @Benchmark
+    public Collection<Film> findMostPopular1000(ApplicationState app) {
+        return app.filmStorage.findMostPopular(1000, projection);
+    }
+
+    @Benchmark
+    public Optional<Film> findById(ApplicationState app) {
+        return app.filmStorage.findById(randomFilmId(app), projection);
+    }
+
+    // страница из PAGE_SIZE фильмов: маппер строк и один IN-запрос на жанры и лайки
+    @Benchmark
+    public List<Film> findPage(ApplicationState app) {
+        int after = ThreadLocalRandom.current().nextInt(Math.max(1, app.spec.films() - PAGE_SIZE));
+        return app.filmStorage.findPage(after, PAGE_SIZE, projection);
+    }
+
+    @Benchmark
+    public Collection<Film> findAll(ApplicationState app) {
+        return app.filmStorage.findAll(projection);
+    }
+
+    private static int randomFilmId(ApplicationState app) {
+        return 1 + ThreadLocalRandom.current().nextInt(app.spec.films());
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends FilmStorageBenchmark {
+    }
+
+    @Threads(8)
+    public static class Contended extends FilmStorageBenchmark {
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пачка одновременных «запросов» {@code UserService.getCommonFriends}: пул из 200 платформенных потоков
+ * (как у Tomcat по умолчанию) против виртуального потока на запрос, с ограничителем доступа к базе и без него.
+ * Время операции - время обработки всей пачки.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RequestConcurrencyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Requests extends ApplicationState {
+        @Param({"platform", "virtual"})
+        public String threads;
+
+        @Param({"false", "true"})
+        public boolean bulkhead;
+
+        @Param({"1000", "10000"})
+        public int concurrency;
+
+        ExecutorService executor;
+
+        @Setup(Level.Trial)
+        public void startExecutor() {
+            executor = threads.equals("virtual")
+                    ? Executors.newVirtualThreadPerTaskExecutor()
+                    : Executors.newFixedThreadPool(200);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopExecutor() {
+            executor.shutdownNow();
+        }
+
+        @Override
+        List<String> arguments() {
+            List<String> arguments = super.arguments();
+            arguments.add("--filmorate.db.bulkhead.enabled=" + bulkhead);
+            return arguments;
+        }
+    }
+
+    @Benchmark
+    public int getCommonFriends(Requests requests) throws Exception {
+        int users = requests.spec.users();
+        List<Callable<Integer>> batch = new ArrayList<>(requests.concurrency);
+        for (int i = 0; i < requests.concurrency; i++) {
+            batch.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                return requests.userService.getCommonFriends(1 + random.nextInt(users), 1 + random.nextInt(users))
+                        .size();
+            });
+        }
+        int found = 0;
+        for (Future<Integer> result : requests.executor.invokeAll(batch)) {
+            found += result.get();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code UserService.getCommonFriends} для случайной пары пользователей: проверки существования,
+ * пересечение списков друзей и загрузка найденных пользователей.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class UserServiceBenchmark {
+
+    @Benchmark
+    public Collection<User> getCommonFriends(ApplicationState app) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(app.spec.users());
+        int otherId = 1 + random.nextInt(app.spec.users());
+        return app.userService.getCommonFriends(userId, otherId);
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends UserServiceBenchmark {
+    }
+
+    @Threads(8)
+    public static class Contended extends UserServiceBenchmark {
+    }
+}
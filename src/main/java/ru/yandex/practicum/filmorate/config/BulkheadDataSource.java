@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничитель параллельного доступа к базе: соединение выдаётся только после получения разрешения
+ * честного семафора, число разрешений равно размеру пула. Лишние потоки ждут в очереди семафора
+ * (по порядку прихода), а не в пуле и не внутри драйвера - с виртуальными потоками это не даёт тысячам
+ * запросов одновременно упереться в синхронизированный код H2 и занять все потоки-носители.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+    public static final String METRIC = "filmorate.db.bulkhead";
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final Timer waits;
+    private final Counter rejected;
+
+    public BulkheadDataSource(DataSource target, int permits, Duration timeout) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutNanos = timeout.toNanos();
+        this.waits = Timer.builder(METRIC + ".wait")
+                .description("Ожидание разрешения на соединение с базой")
+                .register(Metrics.globalRegistry);
+        this.rejected = Counter.builder(METRIC + ".rejected")
+                .description("Запросы соединения, не дождавшиеся разрешения")
+                .register(Metrics.globalRegistry);
+        Gauge.builder(METRIC + ".queue", this.permits, Semaphore::getQueueLength)
+                .description("Потоки в очереди за соединением с базой")
+                .register(Metrics.globalRegistry);
+        Gauge.builder(METRIC + ".active", this.permits, semaphore -> permits - semaphore.availablePermits())
+                .description("Занятые разрешения на соединение с базой")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasing(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasing(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        long started = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с базой прервано", e);
+        }
+        waits.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            throw new SQLTransientConnectionException("Нет свободного соединения с базой за "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " мс");
+        }
+    }
+
+    // разрешение возвращается при закрытии соединения, повторное закрытие его не освобождает
+    private Connection releasing(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                        }
+                    }
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (closed.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+
+import javax.sql.DataSource;
+
+/**
+ * Заполнение пустой базы синтетическими данными сразу после миграций - раньше,
+ * чем индексы в памяти загружаются из БД. Для нагрузочных тестов и локального профилирования.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.dataset.enabled", havingValue = "true")
+public class DatasetConfig {
+
+    // нулевые users, likes и friends-per-user выводятся из числа фильмов
+    @Bean
+    public FlywayMigrationStrategy datasetMigrationStrategy(DataSource dataSource,
+                                                            @Value("${filmorate.dataset.films:10000}") int films,
+                                                            @Value("${filmorate.dataset.users:0}") int users,
+                                                            @Value("${filmorate.dataset.likes:0}") int likes,
+                                                            @Value("${filmorate.dataset.friends-per-user:0}")
+                                                            int friendsPerUser,
+                                                            @Value("${filmorate.dataset.seed:42}") long seed) {
+        DatasetSpec scale = DatasetSpec.ofFilms(films, seed);
+        DatasetSpec spec = new DatasetSpec(
+                users > 0 ? users : scale.users(),
+                films,
+                likes > 0 ? likes : scale.likes(),
+                friendsPerUser > 0 ? friendsPerUser : scale.friendsPerUser(),
+                seed);
+        return flyway -> {
+            flyway.migrate();
+            new DatasetGenerator(new JdbcTemplate(dataSource)).generateIfEmpty(spec);
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Оборачивает пул соединений в {@link BulkheadDataSource}. Включается вместе с виртуальными потоками:
+ * с ними число одновременных запросов не ограничено пулом потоков Tomcat.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.db.bulkhead.enabled", havingValue = "true")
+public class DbBulkheadConfig {
+
+    // static: постпроцессор создаётся раньше остальных бинов конфигурации
+    @Bean
+    public static BeanPostProcessor dbBulkheadPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+                    return bean;
+                }
+                // 0 - по размеру пула и его таймауту ожидания соединения
+                int permits = environment.getProperty("filmorate.db.bulkhead.permits", Integer.class, 0);
+                Duration timeout = environment.getProperty("filmorate.db.bulkhead.timeout", Duration.class,
+                        Duration.ZERO);
+                if (dataSource instanceof HikariDataSource hikari) {
+                    permits = permits > 0 ? permits : hikari.getMaximumPoolSize();
+                    timeout = timeout.isZero() ? Duration.ofMillis(hikari.getConnectionTimeout()) : timeout;
+                }
+                if (permits <= 0 || timeout.isZero()) {
+                    log.warn("Ограничитель доступа к базе для {} не настроен: размер пула неизвестен", beanName);
+                    return bean;
+                }
+                log.info("Ограничитель доступа к базе для {}: {} разрешений", beanName, permits);
+                return new BulkheadDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Strategy;
+import org.zalando.logbook.core.DefaultSink;
+import ru.yandex.practicum.filmorate.logging.AsyncSink;
+import ru.yandex.practicum.filmorate.logging.SamplingStrategy;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Выборочное асинхронное логирование HTTP вместо записи каждого запроса и ответа Logbook.
+ * Размер тел в логе ограничивается стандартной настройкой logbook.write.max-body-size.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.http-log.enabled", havingValue = "true")
+public class HttpLogConfig {
+
+    // маршруты задаются картой шаблон пути -> доля, например {'/films':0.01,'/films/{id}':0.1}
+    @Bean
+    public Strategy samplingStrategy(@Value("${filmorate.http-log.default-rate:1.0}") double defaultRate,
+                                     @Value("#{${filmorate.http-log.routes:{:}}}") Map<String, Double> routes,
+                                     @Value("${filmorate.http-log.slow-threshold:500ms}") Duration slowThreshold) {
+        return new SamplingStrategy(defaultRate, routes, slowThreshold);
+    }
+
+    @Bean
+    public AsyncSink asyncSink(HttpLogFormatter formatter, HttpLogWriter writer, MeterRegistry registry,
+                               @Value("${filmorate.http-log.queue-capacity:1024}") int capacity) {
+        return new AsyncSink(new DefaultSink(formatter, writer), capacity, registry);
+    }
+}
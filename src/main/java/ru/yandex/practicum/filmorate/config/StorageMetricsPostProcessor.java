@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймер {@value #METRIC} на каждый публичный метод бинов {@code *DbStorage} с тегами storage, operation
+ * и exception. Время включает транзакцию, если метод транзакционный. Метрики пишутся в глобальный реестр,
+ * к которому Spring Boot подключает свои реестры, поэтому без actuator (например, в срезах тестов) они ничего не стоят.
+ * Справочники MPA и жанров не оборачиваются: они отвечают из памяти и вызываются на каждую строку фильма,
+ * так что таймер стоил бы дороже самого поиска и заполнил бы метрику бессмысленными замерами.
+ */
+@Component
+public class StorageMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+    public static final String METRIC = "filmorate.storage";
+
+    private static final Set<Class<?>> IN_MEMORY_STORAGES = Set.of(MpaDbStorage.class, GenreDbStorage.class);
+
+    public StorageMetricsPostProcessor() {
+        ComposablePointcut pointcut = new ComposablePointcut(type -> type.getSimpleName().endsWith("DbStorage")
+                && !IN_MEMORY_STORAGES.contains(type))
+                .intersection(new StaticMethodMatcher() {
+                    @Override
+                    public boolean matches(Method method, Class<?> targetClass) {
+                        return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+                    }
+                });
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor());
+        // хранилища внедряются и по классу, а не только по интерфейсу
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+    }
+
+    private static final class TimingInterceptor implements MethodInterceptor {
+        // успешные вызовы - основной поток, их таймеры не ищутся в реестре на каждом вызове
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long started = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                timers.computeIfAbsent(invocation.getMethod(), method -> timer(invocation, "none"))
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                timer(invocation, e.getClass().getSimpleName())
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private static Timer timer(MethodInvocation invocation, String exception) {
+            return Timer.builder(METRIC)
+                    .description("Время выполнения операций хранилищ")
+                    .tag("storage", AopUtils.getTargetClass(invocation.getThis()).getSimpleName())
+                    .tag("operation", invocation.getMethod().getName())
+                    .tag("exception", exception)
+                    .register(Metrics.globalRegistry);
+        }
+    }
+}
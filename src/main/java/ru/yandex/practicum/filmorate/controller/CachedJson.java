@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+
+// Заранее сериализованный ответ для справочников: тело и ETag считаются один раз при старте
+final class CachedJson {
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+    private final byte[] body;
+    private final String eTag;
+
+    private CachedJson(byte[] body) {
+        this.body = body;
+        this.eTag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    static CachedJson of(ObjectMapper objectMapper, Object value) {
+        try {
+            return new CachedJson(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать справочник", e);
+        }
+    }
+
+    ResponseEntity<byte[]> toResponse() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CACHE_CONTROL)
+                .eTag(eTag)
+                .body(body);
+    }
+}
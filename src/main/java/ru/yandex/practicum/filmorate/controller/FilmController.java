@@ -1,17 +1,42 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Create;
+import ru.yandex.practicum.filmorate.model.FacetedFilms;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.Update;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmSearch;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Validated
 @Slf4j
@@ -20,17 +45,89 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class FilmController {
 
+    static final int MAX_BATCH_SIZE = 1000;
+    // небольшие топы дешевле отдавать из общего кэша популярных, чем каждый раз писать из выборки
+    static final int STREAM_POPULAR_MIN_COUNT = 100;
+
     private final FilmService filmService;
+    private final EntityVersions versions;
+    private final ObjectMapper objectMapper;
+
+    @Value("${filmorate.films.stream-json.enabled:false}")
+    private boolean streamJson;
 
+    // с параметрами фильтра ответ - объект со страницей фильмов и счётчиками фасетов, без них - прежний массив
     @GetMapping
-    public Collection<Film> findAllFilms() {
-        log.info("Получен список фильмов");
-        return filmService.findAll();
+    public ResponseEntity<?> findAllFilms(
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_LIMIT) Integer limit,
+            @RequestParam(required = false) @PositiveOrZero Integer after,
+            @RequestParam(defaultValue = "COUNTS") FilmProjection projection,
+            @RequestParam(required = false) List<Integer> genreId,
+            @RequestParam(required = false) List<Integer> mpaId,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) @Positive Integer maxDuration,
+            HttpServletResponse response) throws IOException {
+        if (genreId != null || mpaId != null || yearFrom != null || yearTo != null || maxDuration != null) {
+            FacetedFilms result = filmService.filter(genreId, mpaId, yearFrom, yearTo, maxDuration, after,
+                    limit == null ? Pagination.DEFAULT_LIMIT : limit, projection);
+            log.info("Фильтр фильмов: найдено {}", result.getTotal());
+            return ResponseEntity.ok(result);
+        }
+        if (limit == null && after == null) {
+            log.info("Получен список фильмов");
+            if (streamJson && projection == FilmProjection.COUNTS) {
+                writeJson(response, filmService::writeAll);
+                return null;
+            }
+            return ResponseEntity.ok(filmService.findAll(projection));
+        }
+        Page<Film> page = filmService.findPage(after, limit == null ? Pagination.DEFAULT_LIMIT : limit, projection);
+        log.info("Получена страница фильмов после id {}: {} шт.", after, page.getItems().size());
+        return Pagination.toResponse(page);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Запрошена выгрузка каталога фильмов");
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            filmService.exportAll(film -> {
+                try {
+                    writer.writeValue(generator, film);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> searchFilms(
+            @RequestParam @NotBlank String q,
+            @RequestParam(defaultValue = "20") @Positive @Max(FilmSearch.MAX_LIMIT) Integer limit) {
+        return filmService.search(q, limit);
     }
 
+    // версия берётся до загрузки: изменение во время чтения даст лишний 200, но не устаревший 304;
+    // у несуществующего фильма тоже есть версия, поэтому сначала проверяется, что он есть, - иначе 304 вместо 404
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Integer id) {
-        return filmService.getById(id);
+    public Film getFilm(@PathVariable Integer id,
+                        @RequestParam(defaultValue = "COUNTS") FilmProjection projection,
+                        WebRequest request) {
+        filmService.checkExists(id);
+        if (request.checkNotModified(versions.film(id))) {
+            return null;
+        }
+        return filmService.getById(id, projection);
     }
 
     @PostMapping
@@ -40,6 +137,12 @@ public class FilmController {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createFilms(@RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<Film> films) {
+        log.info("Запрошена пакетная загрузка фильмов: {} шт.", films.size());
+        return filmService.createAll(films);
+    }
+
     @PutMapping
     public Film updateFilm(@Validated(Update.class) @RequestBody Film film) {
         log.info("Запрос на обновление фильма: {}", film);
@@ -59,7 +162,26 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopular(@RequestParam(defaultValue = "10") @Positive Integer count) {
-        return filmService.getPopular(count);
+    public Collection<Film> getPopular(
+            @RequestParam(defaultValue = "10") @Positive @Max(Pagination.MAX_LIMIT) Integer count,
+            @RequestParam(defaultValue = "COUNTS") FilmProjection projection,
+            WebRequest request,
+            HttpServletResponse response) throws IOException {
+        if (request.checkNotModified(versions.popular())) {
+            return null;
+        }
+        if (streamJson && projection == FilmProjection.COUNTS && count >= STREAM_POPULAR_MIN_COUNT) {
+            writeJson(response, generator -> filmService.writePopular(count, generator));
+            return null;
+        }
+        return filmService.getPopular(count, projection);
+    }
+
+    // список пишется в ответ прямо из выборки, в том же виде, что и через Jackson
+    private void writeJson(HttpServletResponse response, Consumer<JsonGenerator> writer) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            writer.accept(generator);
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,23 +10,33 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
-import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/genres")
-@RequiredArgsConstructor
 public class GenreController {
 
-    private final GenreStorage genreStorage;
+    private final CachedJson all;
+    private final Map<Integer, CachedJson> byId;
+
+    public GenreController(GenreStorage genreStorage, ObjectMapper objectMapper) {
+        this.all = CachedJson.of(objectMapper, genreStorage.findAll());
+        this.byId = genreStorage.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Genre::getId, g -> CachedJson.of(objectMapper, g)));
+    }
 
     @GetMapping
-    public Collection<Genre> findAll() {
-        return genreStorage.findAll();
+    public ResponseEntity<byte[]> findAll() {
+        return all.toResponse();
     }
 
     @GetMapping("/{id}")
-    public Genre findById(@PathVariable Integer id) {
-        return genreStorage.findById(id)
-                .orElseThrow(() -> new NotFoundException("Жанр с id " + id + " не найден"));
+    public ResponseEntity<byte[]> findById(@PathVariable Integer id) {
+        CachedJson genre = byId.get(id);
+        if (genre == null) {
+            throw new NotFoundException("Жанр с id " + id + " не найден");
+        }
+        return genre.toResponse();
     }
-}
\ No newline at end of file
+}
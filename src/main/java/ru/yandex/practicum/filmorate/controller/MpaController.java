@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,23 +10,33 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
-import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/mpa")
-@RequiredArgsConstructor
 public class MpaController {
 
-    private final MpaStorage mpaStorage;
+    private final CachedJson all;
+    private final Map<Integer, CachedJson> byId;
+
+    public MpaController(MpaStorage mpaStorage, ObjectMapper objectMapper) {
+        this.all = CachedJson.of(objectMapper, mpaStorage.findAll());
+        this.byId = mpaStorage.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Mpa::getId, m -> CachedJson.of(objectMapper, m)));
+    }
 
     @GetMapping
-    public Collection<Mpa> findAll() {
-        return mpaStorage.findAll();
+    public ResponseEntity<byte[]> findAll() {
+        return all.toResponse();
     }
 
     @GetMapping("/{id}")
-    public Mpa findById(@PathVariable Integer id) {
-        return mpaStorage.findById(id)
-                .orElseThrow(() -> new NotFoundException("Рейтинг с id " + id + " не найден"));
+    public ResponseEntity<byte[]> findById(@PathVariable Integer id) {
+        CachedJson mpa = byId.get(id);
+        if (mpa == null) {
+            throw new NotFoundException("Рейтинг с id " + id + " не найден");
+        }
+        return mpa.toResponse();
     }
 }
@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestions;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
 
+@Validated
 @Slf4j
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final EntityVersions versions;
 
     @GetMapping
-    public Collection<User> findAllUsers() {
-        log.info("Получен список пользователей");
-        return userService.findAll();
+    public ResponseEntity<Collection<User>> findAllUsers(
+            @RequestParam(required = false) @Positive @Max(Pagination.MAX_LIMIT) Integer limit,
+            @RequestParam(required = false) @PositiveOrZero Integer after) {
+        if (limit == null && after == null) {
+            log.info("Получен список пользователей");
+            return ResponseEntity.ok(userService.findAll());
+        }
+        Page<User> page = userService.findPage(after, limit == null ? Pagination.DEFAULT_LIMIT : limit);
+        log.info("Получена страница пользователей после id {}: {} шт.", after, page.getItems().size());
+        return Pagination.toResponse(page);
     }
 
     @GetMapping("/{id}")
@@ -54,10 +76,28 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriends(@PathVariable Integer id) {
+    public Collection<User> getFriends(@PathVariable Integer id, WebRequest request) {
+        userService.checkExists(id);
+        if (request.checkNotModified(versions.friends(id))) {
+            return null;
+        }
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(
+            @PathVariable Integer id,
+            @RequestParam(defaultValue = "10") @Positive @Max(FriendSuggestions.MAX_LIMIT) Integer limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(
+            @PathVariable Integer id,
+            @RequestParam(defaultValue = "10") @Positive @Max(FilmRecommendations.MAX_LIMIT) Integer limit) {
+        return filmService.getRecommendations(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public Collection<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
         return userService.getCommonFriends(id, otherId);
@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генератор воспроизводимых наборов данных: пользователи, фильмы с жанрами, лайки с распределением Ципфа
+ * по фильмам и дружба со степенным распределением числа друзей (предпочтительное присоединение).
+ * Строки пишутся пакетами JDBC напрямую в таблицы схемы, минуя сервисы и валидацию.
+ * Загрузка не атомарна: после ошибки базу нужно очистить перед повторной генерацией.
+ */
+@Slf4j
+public class DatasetGenerator {
+    private static final int BATCH_SIZE = 1000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final int MAX_GENRES_PER_FILM = 3;
+    private static final double LIKES_ZIPF_EXPONENT = 1.0;
+    private static final double FRIENDS_POWER_LAW_EXPONENT = 2.5;
+    // доля друзей, выбранных пропорционально уже набранной популярности, остальные - случайно
+    private static final double PREFERENTIAL_SHARE = 0.8;
+    private static final int MAX_SAMPLING_ROUNDS = 20;
+    private static final LocalDate FIRST_DAY = LocalDate.of(1950, 1, 1);
+    private static final String[] WORDS = {
+            "тайна", "город", "ночь", "дорога", "море", "война", "любовь", "время", "звезда", "дом",
+            "последний", "тёмный", "большой", "северный", "тихий", "красный", "старый", "новый",
+            "путешествие", "история", "охота", "возвращение", "остров", "небо", "зима", "лето"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean generateIfEmpty(DatasetSpec spec) {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT (SELECT COUNT(*) FROM users) + (SELECT COUNT(*) FROM films)", Integer.class);
+        if (rows != null && rows > 0) {
+            log.info("В базе уже есть пользователи или фильмы, генерация набора данных пропущена");
+            return false;
+        }
+        generate(spec);
+        return true;
+    }
+
+    public void generate(DatasetSpec spec) {
+        long started = System.nanoTime();
+        // у каждой таблицы свой поток случайных чисел: изменение одной части не сдвигает остальные
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        SplittableRandom userRandom = random.split();
+        SplittableRandom filmRandom = random.split();
+        long[] likes = likes(spec, random.split());
+        long[] friendships = friendships(spec, random.split());
+        int[] likesCount = new int[spec.films() + 1];
+        for (long like : likes) {
+            likesCount[first(like)]++;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            // внешние ключи заведомо выполнены, проверка каждой строки только замедлила бы загрузку
+            execute(connection, "SET REFERENTIAL_INTEGRITY FALSE");
+            try {
+                insertUsers(connection, spec, userRandom);
+                insertFilms(connection, spec, filmRandom, likesCount);
+                insertPairs(connection, "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+                insertPairs(connection, "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)", friendships);
+                execute(connection, "ALTER TABLE users ALTER COLUMN id RESTART WITH " + (spec.users() + 1));
+                execute(connection, "ALTER TABLE films ALTER COLUMN id RESTART WITH " + (spec.films() + 1));
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                execute(connection, "SET REFERENTIAL_INTEGRITY TRUE");
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+
+        log.info("Сгенерирован набор данных (seed {}): пользователей {}, фильмов {}, лайков {}, дружб {} за {} мс",
+                spec.seed(), spec.users(), spec.films(), likes.length, friendships.length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // популярность фильма по рангу следует закону Ципфа, ранги случайно разбросаны по id
+    private long[] likes(DatasetSpec spec, SplittableRandom random) {
+        int[] filmByRank = shuffledIds(spec.films(), random);
+        double[] cumulative = zipfCumulative(spec.films(), LIKES_ZIPF_EXPONENT);
+        return uniquePairs(spec.likes(), random, r -> pair(filmByRank[sample(cumulative, r)],
+                1 + r.nextInt(spec.users())));
+    }
+
+    /*
+     * Число исходящих связей пользователя - степенное распределение со средним friendsPerUser,
+     * а друг выбирается пропорционально числу уже полученных им связей: так же по степенному закону
+     * распределяется и число входящих.
+     */
+    private long[] friendships(DatasetSpec spec, SplittableRandom random) {
+        int users = spec.users();
+        double alpha = FRIENDS_POWER_LAW_EXPONENT;
+        double minDegree = spec.friendsPerUser() * (alpha - 2) / (alpha - 1);
+        long[] pairs = new long[Math.max(16, users * spec.friendsPerUser())];
+        int[] targets = new int[pairs.length];
+        int count = 0;
+        for (int userId = 1; userId <= users; userId++) {
+            double degree = minDegree * Math.pow(1 - random.nextDouble(), -1 / (alpha - 1));
+            int friends = (int) Math.min(users - 1, Math.round(degree));
+            for (int i = 0; i < friends; i++) {
+                int friendId = count > 0 && random.nextDouble() < PREFERENTIAL_SHARE
+                        ? targets[random.nextInt(count)]
+                        : 1 + random.nextInt(users);
+                if (friendId == userId) continue;
+                if (count == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, count * 2);
+                    targets = Arrays.copyOf(targets, count * 2);
+                }
+                pairs[count] = pair(userId, friendId);
+                targets[count++] = friendId;
+            }
+        }
+        return sortedUnique(pairs, count);
+    }
+
+    private void insertUsers(Connection connection, DatasetSpec spec, SplittableRandom random) throws SQLException {
+        String sql = "INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)";
+        insert(connection, sql, spec.users(), (ps, row) -> {
+            int id = row + 1;
+            ps.setInt(1, id);
+            ps.setString(2, "user" + id + "@example.com");
+            ps.setString(3, "user" + id);
+            ps.setString(4, "User " + id);
+            ps.setDate(5, Date.valueOf(FIRST_DAY.plusDays(random.nextInt(20_000))));
+        });
+    }
+
+    private void insertFilms(Connection connection, DatasetSpec spec, SplittableRandom random,
+                             int[] likesCount) throws SQLException {
+        long[] genres = new long[spec.films() * MAX_GENRES_PER_FILM];
+        int[] genresCount = new int[1];
+        String sql = "INSERT INTO films (id, name, description, release_date, duration, mpa_id, likes_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        insert(connection, sql, spec.films(), (ps, row) -> {
+            int id = row + 1;
+            ps.setInt(1, id);
+            ps.setString(2, capitalize(words(random, 2)));
+            ps.setString(3, capitalize(words(random, 3 + random.nextInt(6))) + ".");
+            ps.setDate(4, Date.valueOf(FIRST_DAY.plusDays(random.nextInt(27_000))));
+            ps.setInt(5, 60 + random.nextInt(121));
+            ps.setInt(6, 1 + random.nextInt(MPA_RATINGS));
+            ps.setInt(7, likesCount[id]);
+
+            // от нуля до трёх разных жанров подряд по кругу
+            int firstGenre = random.nextInt(GENRES);
+            int filmGenres = random.nextInt(MAX_GENRES_PER_FILM + 1);
+            for (int i = 0; i < filmGenres; i++) {
+                genres[genresCount[0]++] = pair(id, 1 + (firstGenre + i) % GENRES);
+            }
+        });
+        insertPairs(connection, "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                Arrays.copyOf(genres, genresCount[0]));
+    }
+
+    private void insertPairs(Connection connection, String sql, long[] pairs) throws SQLException {
+        insert(connection, sql, pairs.length, (ps, row) -> {
+            ps.setInt(1, first(pairs[row]));
+            ps.setInt(2, second(pairs[row]));
+        });
+    }
+
+    // фиксация после каждого пакета: одна транзакция на миллионы строк в H2 заметно медленнее
+    private void insert(Connection connection, String sql, int rows, RowWriter writer) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int row = 0; row < rows; row++) {
+                writer.write(ps, row);
+                ps.addBatch();
+                if ((row + 1) % BATCH_SIZE == 0 || row == rows - 1) {
+                    ps.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    // выборка с повторами, дубликаты отбрасываются сортировкой; недостающее добирается следующими раундами
+    private static long[] uniquePairs(int target, SplittableRandom random, PairSampler sampler) {
+        long[] pairs = new long[0];
+        for (int round = 0; round < MAX_SAMPLING_ROUNDS && pairs.length < target; round++) {
+            int have = pairs.length;
+            pairs = Arrays.copyOf(pairs, target);
+            for (int i = have; i < target; i++) {
+                pairs[i] = sampler.sample(random);
+            }
+            pairs = sortedUnique(pairs, target);
+        }
+        if (pairs.length < target) {
+            log.warn("Удалось сгенерировать только {} уникальных пар из {}", pairs.length, target);
+        }
+        return pairs;
+    }
+
+    private static long[] sortedUnique(long[] values, int length) {
+        Arrays.sort(values, 0, length);
+        int unique = 0;
+        for (int i = 0; i < length; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, unique);
+    }
+
+    private static int[] shuffledIds(int count, SplittableRandom random) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    private static double[] zipfCumulative(int count, double exponent) {
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int rank = 0; rank < count; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, SplittableRandom random) {
+        double point = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, point);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    private static String words(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private static long pair(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    private static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int second(long pair) {
+        return (int) pair;
+    }
+
+    private interface RowWriter {
+        void write(PreparedStatement ps, int row) throws SQLException;
+    }
+
+    private interface PairSampler {
+        long sample(SplittableRandom random);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+/**
+ * Размеры синтетического набора данных. Одинаковые параметры и seed дают одинаковые строки.
+ *
+ * @param friendsPerUser среднее число друзей; фактическое распределено по степенному закону
+ */
+public record DatasetSpec(int users, int films, int likes, int friendsPerUser, long seed) {
+    public static final int DEFAULT_FRIENDS_PER_USER = 20;
+
+    public DatasetSpec {
+        if (users < 2 || films < 1 || likes < 0 || friendsPerUser < 0) {
+            throw new IllegalArgumentException("Некорректные размеры набора данных");
+        }
+        if ((long) users * films < likes) {
+            throw new IllegalArgumentException("Лайков больше, чем пар фильм-пользователь");
+        }
+    }
+
+    // масштаб задаётся числом фильмов: лайков столько же, пользователей - десятая часть, но не меньше тысячи
+    public static DatasetSpec ofFilms(int films, long seed) {
+        return new DatasetSpec(Math.max(1000, films / 10), films, films, DEFAULT_FRIENDS_PER_USER, seed);
+    }
+}
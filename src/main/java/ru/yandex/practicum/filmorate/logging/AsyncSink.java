@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Origin;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.attributes.HttpAttributes;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пишет HTTP-логи в отдельном потоке: поток запроса только копирует запрос и ответ в неизменяемые снимки
+ * и кладёт их в ограниченную очередь, форматирование и запись делает фоновый поток. Если очередь заполнена,
+ * запись отбрасывается и учитывается в счётчике {@value #DROPPED_METRIC} - запрос не ждёт логирования.
+ */
+@Slf4j
+public class AsyncSink implements Sink, AutoCloseable {
+    public static final String DROPPED_METRIC = "filmorate.http.log.dropped";
+    public static final String QUEUE_METRIC = "filmorate.http.log.queue";
+
+    private static final Entry STOP = new Entry(null, null, null);
+
+    private final Sink delegate;
+    private final BlockingQueue<Entry> queue;
+    private final Counter dropped;
+    private final Thread worker;
+
+    public AsyncSink(Sink delegate, int capacity, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = Counter.builder(DROPPED_METRIC)
+                .description("HTTP-логи, отброшенные из-за переполнения очереди")
+                .register(registry);
+        Gauge.builder(QUEUE_METRIC, queue, BlockingQueue::size)
+                .description("HTTP-логи в очереди на запись")
+                .register(registry);
+        this.worker = Thread.ofPlatform().name("http-log-writer").daemon().start(this::drain);
+    }
+
+    @Override
+    public boolean isActive() {
+        return delegate.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request) throws IOException {
+        // стратегия выборки отдельно запрос не пишет, поэтому здесь без очереди
+        delegate.write(precorrelation, request);
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        enqueue(correlation, request, response);
+    }
+
+    @Override
+    public void writeBoth(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        enqueue(correlation, request, response);
+    }
+
+    @Override
+    public void close() {
+        // пока очередь переполнена, ждём освобождения места: накопленные записи должны дойти до лога
+        try {
+            while (!queue.offer(STOP, 100, TimeUnit.MILLISECONDS)) {
+                if (!worker.isAlive()) {
+                    return;
+                }
+            }
+            worker.join();
+        } catch (InterruptedException e) {
+            // остановку прервали - оставшиеся записи не дожидаемся, флаг прерывания сохраняем для вызывающего
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        Entry entry = new Entry(CorrelationSnapshot.of(correlation), RequestSnapshot.of(request),
+                ResponseSnapshot.of(response));
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == STOP) {
+                return;
+            }
+            try {
+                delegate.writeBoth(entry.correlation(), entry.request(), entry.response());
+            } catch (Exception e) {
+                log.warn("Не удалось записать HTTP-лог {}", entry.correlation().getId(), e);
+            }
+        }
+    }
+
+    private record Entry(Correlation correlation, HttpRequest request, HttpResponse response) {
+    }
+
+    private record CorrelationSnapshot(String getId, Instant getStart, Instant getEnd,
+                                       Duration getDuration) implements Correlation {
+        static CorrelationSnapshot of(Correlation correlation) {
+            return new CorrelationSnapshot(correlation.getId(), correlation.getStart(), correlation.getEnd(),
+                    correlation.getDuration());
+        }
+
+        @Override
+        public Correlation correlate() {
+            return this;
+        }
+    }
+
+    // объекты контейнера сервлетов переиспользуются после завершения запроса, поэтому всё копируется заранее
+    private record RequestSnapshot(String getRemote, String getMethod, String getRequestUri, String getScheme,
+                                   String getHost, Optional<Integer> getPort, String getPath, String getQuery,
+                                   String getProtocolVersion, Origin getOrigin, HttpHeaders getHeaders,
+                                   String getContentType, Charset getCharset, byte[] getBody,
+                                   HttpAttributes getAttributes) implements HttpRequest {
+        static RequestSnapshot of(HttpRequest request) throws IOException {
+            return new RequestSnapshot(request.getRemote(), request.getMethod(), request.getRequestUri(),
+                    request.getScheme(), request.getHost(), request.getPort(), request.getPath(),
+                    request.getQuery(), request.getProtocolVersion(), request.getOrigin(), request.getHeaders(),
+                    request.getContentType(), request.getCharset(), request.getBody(), request.getAttributes());
+        }
+
+        @Override
+        public HttpRequest withBody() {
+            return this;
+        }
+
+        @Override
+        public HttpRequest withoutBody() {
+            return this;
+        }
+    }
+
+    private record ResponseSnapshot(int getStatus, String getReasonPhrase, String getProtocolVersion,
+                                    Origin getOrigin, HttpHeaders getHeaders, String getContentType,
+                                    Charset getCharset, byte[] getBody) implements HttpResponse {
+        static ResponseSnapshot of(HttpResponse response) throws IOException {
+            return new ResponseSnapshot(response.getStatus(), response.getReasonPhrase(),
+                    response.getProtocolVersion(), response.getOrigin(), response.getHeaders(),
+                    response.getContentType(), response.getCharset(), response.getBody());
+        }
+
+        @Override
+        public HttpResponse withBody() {
+            return this;
+        }
+
+        @Override
+        public HttpResponse withoutBody() {
+            return this;
+        }
+    }
+}
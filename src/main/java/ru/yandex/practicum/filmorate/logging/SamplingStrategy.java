@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.ForwardingHttpMessage;
+import org.zalando.logbook.ForwardingHttpRequest;
+import org.zalando.logbook.HttpMessage;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выборочное логирование HTTP: запрос попадает в выборку с долей, заданной для его маршрута.
+ * Запрос и ответ пишутся одной записью по завершении. Ошибки (статус от 400) и медленные запросы
+ * пишутся всегда, но тело ответа буферизуется только для попавших в выборку - иначе
+ * многомегабайтные ответы копировались бы ради записи, которая не будет сделана.
+ */
+public class SamplingStrategy implements Strategy {
+    private static final int ERROR_STATUS = 400;
+
+    private final double defaultRate;
+    private final List<Map.Entry<PathPattern, Double>> routes;
+    private final Duration slowThreshold;
+
+    public SamplingStrategy(double defaultRate, Map<String, Double> routeRates, Duration slowThreshold) {
+        this.defaultRate = defaultRate;
+        this.slowThreshold = slowThreshold;
+        // самый конкретный шаблон проверяется первым
+        this.routes = routeRates.entrySet().stream()
+                .map(route -> Map.entry(PathPatternParser.defaultInstance.parse(route.getKey()), route.getValue()))
+                .sorted(Map.Entry.comparingByKey(PathPattern.SPECIFICITY_COMPARATOR))
+                .toList();
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < rate(request.getPath());
+        return new MarkedRequest(request.withBody(), sampled);
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // запрос пишется вместе с ответом, когда уже известны статус и длительность
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return isSampled(request) ? response.withBody() : response.withoutBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response,
+                      Sink sink) throws IOException {
+        if (isSampled(request)
+                || response.getStatus() >= ERROR_STATUS
+                || correlation.getDuration().compareTo(slowThreshold) >= 0) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    double rate(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        return routes.stream()
+                .filter(route -> route.getKey().matches(container))
+                .findFirst()
+                .map(Map.Entry::getValue)
+                .orElse(defaultRate);
+    }
+
+    // Logbook оборачивает запрос своими обёртками, метка ищется по цепочке делегатов
+    private static boolean isSampled(HttpMessage message) {
+        while (message != null) {
+            if (message instanceof MarkedRequest marked) {
+                return marked.sampled;
+            }
+            message = message instanceof ForwardingHttpMessage forwarding ? forwarding.delegate() : null;
+        }
+        return false;
+    }
+
+    private record MarkedRequest(HttpRequest delegate, boolean sampled) implements ForwardingHttpRequest {
+    }
+}
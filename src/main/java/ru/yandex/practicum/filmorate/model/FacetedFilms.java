@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Map;
+
+// страница отфильтрованных фильмов и число фильмов выборки по каждому жанру и рейтингу MPA
+@Getter
+@RequiredArgsConstructor
+public class FacetedFilms {
+    private final int total;
+    private final Collection<Film> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Integer nextCursor;
+    private final Map<Integer, Integer> genres;
+    private final Map<Integer, Integer> mpa;
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -31,8 +33,13 @@ public class Film {
             message = "Продолжительность фильма должна быть больше 0")
     private Integer duration;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Integer> likes = new LinkedHashSet<>();
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer likesCount;
+
     @NotNull(groups = Create.class, message = "Необходимо указать рейтинг MPA")
     private Mpa mpa;
 
@@ -43,9 +50,28 @@ public class Film {
     @AssertTrue(groups = {Create.class, Update.class},
             message = "Дата релиза должна быть позже 28 декабря 1895 года")
     public boolean isReleaseDateValid() {
+        return isReleaseDateValid(releaseDate);
+    }
+
+    public static boolean isReleaseDateValid(LocalDate releaseDate) {
         if (releaseDate == null) {
             return true;
         }
         return !releaseDate.isBefore(MIN_RELEASE_DATE);
     }
+
+    // копия с собственными коллекциями жанров и лайков; рейтинг и жанры - общие неизменяемые экземпляры
+    public static Film copyOf(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setLikesCount(source.getLikesCount());
+        film.setMpa(source.getMpa());
+        film.setGenres(source.getGenres() == null ? null : new LinkedHashSet<>(source.getGenres()));
+        film.setLikes(source.getLikes() == null ? null : new LinkedHashSet<>(source.getLikes()));
+        return film;
+    }
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum FilmProjection {
+    // только likesCount, без выборки из film_likes
+    COUNTS,
+    // likesCount и полный список id пользователей в likes
+    FULL
+}
@@ -1,9 +1,18 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-@Data
+// без сеттеров: GenreDbStorage раздаёт один и тот же экземпляр всем фильмам с этим жанром
+@Value
 public class Genre {
-    private Integer id;
-    private String name;
+    Integer id;
+    String name;
+
+    @JsonCreator
+    public Genre(@JsonProperty("id") Integer id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
@@ -1,9 +1,18 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-@Data
+// рейтинги читаются из общего справочника MpaDbStorage, поэтому объект неизменяем
+@Value
 public class Mpa {
-    private Integer id;
-    private String name;
+    Integer id;
+    String name;
+
+    @JsonCreator
+    public Mpa(@JsonProperty("id") Integer id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
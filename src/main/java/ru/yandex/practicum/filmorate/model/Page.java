@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+@RequiredArgsConstructor
+public class Page<T> {
+    private final List<T> items;
+    private final Integer nextCursor;
+
+    // rows запрашиваются с запасом в одну запись: по ней понятно, есть ли следующая страница
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Integer> idExtractor) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idExtractor.apply(items.getLast()));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.storage.user.UserUpdatedEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Версии фильмов и списков друзей для ETag: растут по событиям хранилищ после коммита, так что проверка
+ * If-None-Match не читает БД. Версии лежат не по сущности, а в ячейках по id (памяти не больше, чем
+ * на {@value #SLOTS} ячеек): фильмы, попавшие в одну ячейку, лишь изредка получают лишний 200 вместо 304.
+ * В ETag входит момент запуска - версии после перезапуска начинаются заново.
+ * <p>
+ * Версия растёт только после того, как данные, которые по ней отдаются, уже обновлены: слушатели кэшей
+ * выполняются раньше (порядок {@link #ORDER}), граф дружбы меняется до публикации события, а рейтинг
+ * популярных ведёт собственную версию. Поэтому ответ с новым ETag не может содержать старые данные.
+ */
+@Component
+public class EntityVersions {
+    // кэши, сбрасываемые по событиям хранилищ, слушают их с более высоким приоритетом
+    public static final int ORDER = 0;
+
+    private static final int SLOTS = 1 << 16;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLongArray films = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray friends = new AtomicLongArray(SLOTS);
+    // любое изменение фильмов может поменять список популярных, любое изменение пользователей - чей-то список друзей
+    private final AtomicLong allFilms = new AtomicLong();
+    private final AtomicLong allUsers = new AtomicLong();
+    private final PopularFilmsLeaderboard leaderboard;
+
+    public EntityVersions(PopularFilmsLeaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        films.incrementAndGet(slot(event.id()));
+        allFilms.incrementAndGet();
+    }
+
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikesChanged(FilmLikesChangedEvent event) {
+        event.filmIds().forEach(id -> films.incrementAndGet(slot(id)));
+        allFilms.incrementAndGet();
+    }
+
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        allUsers.incrementAndGet();
+    }
+
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        friends.incrementAndGet(slot(event.userId()));
+    }
+
+    public String film(int id) {
+        return tag("f" + films.get(slot(id)));
+    }
+
+    public String popular() {
+        return tag("p" + allFilms.get() + "." + leaderboard.version());
+    }
+
+    public String friends(int userId) {
+        return tag("u" + friends.get(slot(userId)) + "." + allUsers.get());
+    }
+
+    private String tag(String version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    private static int slot(int id) {
+        return id & (SLOTS - 1);
+    }
+}
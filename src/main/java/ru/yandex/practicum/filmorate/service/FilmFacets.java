@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.FilmFacetIndex;
+
+import java.util.Collection;
+
+/**
+ * Фасетный фильтр каталога. Индекс строится выгрузкой каталога при старте
+ * и обновляется событиями хранилища после коммита.
+ */
+@Slf4j
+@Component
+public class FilmFacets {
+    private final FilmStorage filmStorage;
+    private final FilmFacetIndex index = new FilmFacetIndex();
+
+    public FilmFacets(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        filmStorage.exportAll(FilmProjection.COUNTS, film -> index.put(film.getId(), film.getReleaseDate().getYear(),
+                film.getDuration(), film.getMpa().getId(), film.getGenres().stream().map(Genre::getId).toList()));
+        log.info("Фасетный индекс построен: {} фильмов", index.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        index.put(event.id(), event.releaseDate().getYear(), event.duration(), event.mpaId(), event.genreIds());
+    }
+
+    public FilmFacetIndex.Selection select(Collection<Integer> genreIds, Collection<Integer> mpaIds,
+                                           Integer yearFrom, Integer yearTo, Integer maxDuration) {
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException("Год начала диапазона " + yearFrom + " больше года окончания " + yearTo);
+        }
+        return index.select(genreIds, mpaIds, yearFrom, yearTo, maxDuration);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.LikesIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Рекомендации фильмов по совпадению лайков. Индекс строится из film_likes при старте
+ * и дальше обновляется каждым применённым лайком или его отменой.
+ */
+@Slf4j
+@Component
+public class FilmRecommendations {
+    public static final int MAX_LIMIT = 100;
+
+    private final FilmStorage filmStorage;
+    private final LikesIndex index = new LikesIndex();
+
+    @Value("${filmorate.recommendations.neighbours:50}")
+    private int neighbours;
+    @Value("${filmorate.recommendations.max-film-degree:10000}")
+    private int maxFilmDegree;
+    @Value("${filmorate.recommendations.max-visited:500000}")
+    private int maxVisited;
+
+    public FilmRecommendations(@Qualifier("cachingFilmStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        index.clear();
+        filmStorage.forEachLike((filmId, userId) -> index.add(userId, filmId));
+        log.info("Индекс лайков построен: {} лайков, ~{} КБ", index.likeCount(), index.estimatedBytes() / 1024);
+    }
+
+    public void apply(LikeChange change) {
+        if (change.liked()) {
+            index.add(change.userId(), change.filmId());
+        } else {
+            index.remove(change.userId(), change.filmId());
+        }
+    }
+
+    public List<Integer> recommend(Integer userId, int limit) {
+        return Arrays.stream(index.recommend(userId, limit, neighbours, maxFilmDegree, maxVisited)).boxed().toList();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.storage.film.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.FilmSearchIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Поиск по названию и описанию. Индекс строится потоковой выгрузкой каталога без лайков при старте
+ * и дальше обновляется событиями хранилища после коммита, без повторного чтения таблицы.
+ */
+@Slf4j
+@Component
+public class FilmSearch {
+    public static final int MAX_LIMIT = 100;
+
+    private final FilmStorage filmStorage;
+    private final PopularFilmsLeaderboard leaderboard;
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Value("${filmorate.search.max-postings:100000}")
+    private int maxPostings;
+
+    public FilmSearch(@Qualifier("filmDbStorage") FilmStorage filmStorage, PopularFilmsLeaderboard leaderboard) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        filmStorage.exportAll(FilmProjection.COUNTS, film -> index.put(film.getId(), film.getName(), film.getDescription()));
+        log.info("Поисковый индекс построен: {} термов", index.termCount());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        index.put(event.id(), event.name(), event.description());
+    }
+
+    public List<Integer> search(String query, int limit) {
+        return Arrays.stream(index.search(query, limit, maxPostings, leaderboard::likes)).boxed().toList();
+    }
+}
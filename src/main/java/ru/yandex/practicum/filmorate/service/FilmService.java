@@ -1,66 +1,168 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Create;
+import ru.yandex.practicum.filmorate.model.FacetedFilms;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.util.SingleFlight;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
+    // разных count у популярных немного; если их запрашивают слишком много, кэш просто очищается
+    private static final int MAX_CACHED_POPULAR = 1000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
+    private final PopularFilmsLeaderboard leaderboard;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmRecommendations recommendations;
+    private final FilmSearch filmSearch;
+    private final FilmFacets filmFacets;
+    private final Validator validator;
+    private final EntityVersions versions;
+
+    // ключи включают версию: запрос, пришедший после изменения, не получит результат загрузки, начатой до него.
+    // Загруженные фильмы общие для всех, кто их дождался, поэтому каждый вызывающий получает свою копию
+    private final SingleFlight<FilmKey, Optional<Film>> filmLoads = new SingleFlight<>("getById");
+    private final SingleFlight<PopularLoad, Collection<Film>> popularLoads = new SingleFlight<>("getPopular");
+    private final Map<PopularKey, CachedPopular> popularCache = new ConcurrentHashMap<>();
+    private final long popularTtlNanos;
+    private final Counter popularCacheHits = Counter.builder("filmorate.popular.cache.hits")
+            .description("Популярные фильмы, отданные из кэша без загрузки")
+            .register(Metrics.globalRegistry);
 
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+    public FilmService(@Qualifier("cachingFilmStorage") FilmStorage filmStorage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        MpaStorage mpaStorage,
-                       GenreStorage genreStorage) {
+                       GenreStorage genreStorage,
+                       PopularFilmsLeaderboard leaderboard,
+                       LikeWriteBuffer likeWriteBuffer,
+                       FilmRecommendations recommendations,
+                       FilmSearch filmSearch,
+                       FilmFacets filmFacets,
+                       Validator validator,
+                       EntityVersions versions,
+                       @Value("${filmorate.popular.cache-ttl-ms:250}") long popularTtlMs) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.mpaStorage = mpaStorage;
         this.genreStorage = genreStorage;
+        this.leaderboard = leaderboard;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.recommendations = recommendations;
+        this.filmSearch = filmSearch;
+        this.filmFacets = filmFacets;
+        this.validator = validator;
+        this.versions = versions;
+        this.popularTtlNanos = TimeUnit.MILLISECONDS.toNanos(popularTtlMs);
+    }
+
+    public Collection<Film> findAll(FilmProjection projection) {
+        return filmStorage.findAll(projection);
+    }
+
+    public void writeAll(JsonGenerator generator) {
+        filmStorage.writeAll(generator);
+    }
+
+    public Page<Film> findPage(Integer after, int limit, FilmProjection projection) {
+        return Page.of(filmStorage.findPage(after == null ? 0 : after, limit + 1, projection), limit, Film::getId);
     }
 
-    public Collection<Film> findAll() {
-        return filmStorage.findAll();
+    public void exportAll(Consumer<Film> consumer) {
+        filmStorage.exportAll(FilmProjection.FULL, consumer);
     }
 
     public Film create(Film film) {
-        if (film.getMpa() == null || film.getMpa().getId() == null) {
-            throw new NotFoundException("Рейтинг MPA не указан");
-        }
-        Integer mpaId = film.getMpa().getId();
-        mpaStorage.findById(mpaId)
-                .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id " + mpaId + " не найден"));
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            Set<Genre> validatedGenres = film.getGenres().stream()
-                    .map(g -> genreStorage.findById(g.getId())
-                            .orElseThrow(() -> new NotFoundException("Жанр с id " + g.getId() + " не найден")))
-                    .collect(Collectors.toCollection(LinkedHashSet::new)); // сохраняем порядок и уникальность
-            film.setGenres(validatedGenres);
+        resolveReferences(film);
+
+        Film created = filmStorage.create(film);
+        leaderboard.register(created.getId());
+        return created;
+    }
+
+    // каждый элемент проверяется независимо: ошибка одного не отменяет вставку остальных
+    public List<BatchItemResult> createAll(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Film> valid = new ArrayList<>(films.size());
+        List<Integer> validIndexes = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            if (film == null) {
+                results[i] = BatchItemResult.failed(i, "Фильм не передан");
+                continue;
+            }
+            String violations = validator.validate(film, Create.class).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            if (!violations.isEmpty()) {
+                results[i] = BatchItemResult.failed(i, violations);
+                continue;
+            }
+            try {
+                resolveReferences(film);
+            } catch (NotFoundException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+                continue;
+            }
+            valid.add(film);
+            validIndexes.add(i);
         }
 
-        return filmStorage.create(film);
+        List<Film> created = filmStorage.createAll(valid);
+        for (int i = 0; i < created.size(); i++) {
+            Integer id = created.get(i).getId();
+            leaderboard.register(id);
+            results[validIndexes.get(i)] = BatchItemResult.created(validIndexes.get(i), id);
+        }
+        log.info("Пакетная загрузка фильмов: создано {}, отклонено {}", created.size(), films.size() - created.size());
+        return Arrays.asList(results);
     }
 
     public Film update(Film film) {
         if (film.getId() == null) {
             throw new NotFoundException("Фильм с id null не найден");
         }
-        Film stored = filmStorage.findById(film.getId())
+        Film stored = filmStorage.findById(film.getId(), FilmProjection.COUNTS)
                 .orElseThrow(() -> new NotFoundException("Фильм с id " + film.getId() + " не найден"));
 
         if (film.getName() != null && !film.getName().isBlank()) {
@@ -81,49 +183,164 @@ public class FilmService {
         if (film.getGenres() != null) {
             stored.setGenres(film.getGenres());
         }
-        if (stored.getMpa() == null || stored.getMpa().getId() == null) {
-            throw new NotFoundException("Рейтинг MPA не указан");
-        }
-        Integer mpaId = stored.getMpa().getId();
-        mpaStorage.findById(mpaId)
-                .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id " + mpaId + " не найден"));
-        if (stored.getGenres() != null && !stored.getGenres().isEmpty()) {
-            Set<Genre> validatedGenres = stored.getGenres().stream()
-                    .map(g -> genreStorage.findById(g.getId())
-                            .orElseThrow(() -> new NotFoundException("Жанр с id " + g.getId() + " не найден")))
-                    .collect(Collectors.toCollection(LinkedHashSet::new));
-            stored.setGenres(validatedGenres);
-        }
+        resolveReferences(stored);
 
         filmStorage.update(stored);
         log.info("Обновлён фильм: {}", stored.getId());
         return stored;
     }
 
-    public Film getById(Integer id) {
-        return filmStorage.findById(id)
+    public Film getById(Integer id, FilmProjection projection) {
+        return filmLoads.load(new FilmKey(id, projection, versions.film(id)),
+                        () -> filmStorage.findById(id, projection))
+                .map(Film::copyOf)
                 .orElseThrow(() -> new NotFoundException("Фильм с id " + id + " не найден"));
     }
 
     public void addLike(Integer filmId, Integer userId) {
-        getById(filmId);
-        userStorage.findById(userId)
-                .orElseThrow(() -> new NotFoundException("User с id " + userId + " не найден"));
+        checkFilmAndUser(filmId, userId);
 
-        filmStorage.addLike(filmId, userId);
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.submit(filmId, userId, true);
+        } else {
+            if (filmStorage.addLike(filmId, userId)) {
+                leaderboard.changeLikes(filmId, 1);
+            }
+            recommendations.apply(new LikeChange(filmId, userId, true));
+        }
         log.info("User {} поставил лайк фильму {}", userId, filmId);
     }
 
     public void removeLike(Integer filmId, Integer userId) {
-        getById(filmId);
-        userStorage.findById(userId)
-                .orElseThrow(() -> new NotFoundException("User с id " + userId + " не найден"));
+        checkFilmAndUser(filmId, userId);
 
-        filmStorage.removeLike(filmId, userId);
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.submit(filmId, userId, false);
+        } else {
+            if (filmStorage.removeLike(filmId, userId)) {
+                leaderboard.changeLikes(filmId, -1);
+            }
+            recommendations.apply(new LikeChange(filmId, userId, false));
+        }
         log.info("User {} отменил лайк фильма {}", userId, filmId);
     }
 
-    public Collection<Film> getPopular(int count) {
-        return filmStorage.findMostPopular(count);
+    public FacetedFilms filter(Collection<Integer> genreIds, Collection<Integer> mpaIds, Integer yearFrom,
+                               Integer yearTo, Integer maxDuration, Integer after, int limit,
+                               FilmProjection projection) {
+        FilmFacetIndex.Selection selection = filmFacets.select(genreIds, mpaIds, yearFrom, yearTo, maxDuration);
+        Page<Integer> page = Page.of(selection.idsAfter(after, limit + 1), limit, Integer::intValue);
+        return new FacetedFilms(selection.films().cardinality(), filmStorage.findByIds(page.getItems(), projection),
+                page.getNextCursor(), selection.genreCounts(), selection.mpaCounts());
+    }
+
+    public Collection<Film> search(String query, int limit) {
+        return filmStorage.findByIds(filmSearch.search(query, limit), FilmProjection.COUNTS);
+    }
+
+    public Collection<Film> getRecommendations(Integer userId, int limit) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User с id " + userId + " не найден");
+        }
+        return filmStorage.findByIds(recommendations.recommend(userId, limit), FilmProjection.COUNTS);
+    }
+
+    public void checkExists(Integer id) {
+        if (!filmStorage.exists(id)) {
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+    }
+
+    private void checkFilmAndUser(Integer filmId, Integer userId) {
+        checkExists(filmId);
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User с id " + userId + " не найден");
+        }
+    }
+
+    // одновременные одинаковые запросы разделяют одну загрузку, её результат ещё popular-cache-ttl-ms
+    // отдаётся из кэша, пока список не изменился; устаревшая запись перезаписывается в том же слоте
+    public Collection<Film> getPopular(int count, FilmProjection projection) {
+        PopularKey key = new PopularKey(count, projection);
+        String version = versions.popular();
+        CachedPopular cached = popularCache.get(key);
+        if (cached != null && cached.version().equals(version)
+                && System.nanoTime() - cached.loadedAt() < popularTtlNanos) {
+            popularCacheHits.increment();
+            return copies(cached.films());
+        }
+        return copies(popularLoads.load(new PopularLoad(key, version), () -> {
+            Collection<Film> films = loadPopular(count, projection);
+            if (popularTtlNanos > 0) {
+                if (popularCache.size() >= MAX_CACHED_POPULAR && !popularCache.containsKey(key)) {
+                    popularCache.clear();
+                }
+                popularCache.put(key, new CachedPopular(version, System.nanoTime(), films));
+            }
+            return films;
+        }));
+    }
+
+    private static List<Film> copies(Collection<Film> films) {
+        return films.stream().map(Film::copyOf).toList();
+    }
+
+    // без кэша и объединения: путь для больших списков, где важнее не создавать объекты Film
+    public void writePopular(int count, JsonGenerator generator) {
+        if (!leaderboard.isLoaded()) {
+            filmStorage.writeMostPopular(count, generator);
+        } else {
+            filmStorage.writeByIds(leaderboard.top(count), generator);
+        }
+    }
+
+    private Collection<Film> loadPopular(int count, FilmProjection projection) {
+        if (!leaderboard.isLoaded()) {
+            return filmStorage.findMostPopular(count, projection);
+        }
+        return filmStorage.findByIds(leaderboard.top(count), projection);
+    }
+
+    // справочники закэшированы в хранилищах, поэтому проверка не ходит в БД
+    private void resolveReferences(Film film) {
+        if (film.getMpa() == null || film.getMpa().getId() == null) {
+            throw new NotFoundException("Рейтинг MPA не указан");
+        }
+        Integer mpaId = film.getMpa().getId();
+        film.setMpa(mpaStorage.findById(mpaId)
+                .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id " + mpaId + " не найден")));
+        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+            Set<Genre> validatedGenres = film.getGenres().stream()
+                    .map(g -> genreStorage.findById(g.getId())
+                            .orElseThrow(() -> new NotFoundException("Жанр с id " + g.getId() + " не найден")))
+                    .collect(Collectors.toCollection(LinkedHashSet::new)); // сохраняем порядок и уникальность
+            film.setGenres(validatedGenres);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildLikesCount() {
+        filmStorage.rebuildLikesCount();
+        leaderboard.reload(filmStorage::findLikesCounts);
+        log.info("Счётчики лайков пересчитаны по film_likes, рейтинг популярных загружен");
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.popular.resync-interval-ms}",
+            initialDelayString = "${filmorate.popular.resync-interval-ms}")
+    public void resyncLeaderboard() {
+        leaderboard.reload(filmStorage::findLikesCounts);
+        log.debug("Рейтинг популярных фильмов синхронизирован с БД");
+    }
+
+    private record FilmKey(Integer id, FilmProjection projection, String version) {
+    }
+
+    private record PopularKey(int count, FilmProjection projection) {
+    }
+
+    private record PopularLoad(PopularKey key, String version) {
+    }
+
+    private record CachedPopular(String version, long loadedAt, Collection<Film> films) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рекомендации «возможно, вы знакомы». Для пользователей с большим числом друзей результат
+ * считается один раз на максимальный лимит и дальше обновляется в фоне, а не на каждый запрос.
+ * Запись сбрасывается, когда меняется список друзей пользователя, и удаляется, если её не запрашивали
+ * с прошлого обновления, - фоновая работа растёт с числом активных пользователей, а не всех, кто когда-то спрашивал.
+ */
+@Slf4j
+@Component
+public class FriendSuggestions {
+    public static final int MAX_LIMIT = 100;
+
+    private final FriendshipStorage friendshipStorage;
+    private final int heavyUserDegree;
+    private final Map<Integer, Cached> heavyUsers = new ConcurrentHashMap<>();
+
+    public FriendSuggestions(FriendshipStorage friendshipStorage,
+                             @Value("${filmorate.suggestions.heavy-user-degree:1000}") int heavyUserDegree) {
+        this.friendshipStorage = friendshipStorage;
+        this.heavyUserDegree = heavyUserDegree;
+    }
+
+    public List<Integer> suggest(Integer userId, int limit) {
+        Cached cached = heavyUsers.get(userId);
+        if (cached == null && friendshipStorage.getFriendsCount(userId) >= heavyUserDegree) {
+            cached = heavyUsers.computeIfAbsent(userId, this::load);
+        }
+        if (cached != null) {
+            cached.requested = true;
+            return cached.ids.subList(0, Math.min(limit, cached.ids.size()));
+        }
+        return friendshipStorage.getSuggestedFriendsIds(userId, limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        heavyUsers.remove(event.userId());
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.suggestions.refresh-interval-ms:60000}")
+    public void refreshHeavyUsers() {
+        if (heavyUsers.isEmpty()) return;
+        heavyUsers.values().removeIf(cached -> !cached.requested);
+        heavyUsers.replaceAll((id, old) -> load(id));
+        log.debug("Обновлены рекомендации друзей для {} пользователей", heavyUsers.size());
+    }
+
+    private Cached load(Integer userId) {
+        return new Cached(friendshipStorage.getSuggestedFriendsIds(userId, MAX_LIMIT));
+    }
+
+    private static final class Cached {
+        private final List<Integer> ids;
+        private volatile boolean requested;
+
+        private Cached(List<Integer> ids) {
+            this.ids = ids;
+        }
+    }
+}
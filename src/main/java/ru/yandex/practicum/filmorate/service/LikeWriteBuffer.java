@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись лайков. Для пары (фильм, пользователь) хранится только последнее желаемое состояние,
+ * поэтому серия лайк/отмена схлопывается в одну операцию. Буфер ограничен: когда он заполнен,
+ * вызывающий поток сам выполняет сброс и тем самым притормаживает поток запросов.
+ */
+@Slf4j
+@Component
+public class LikeWriteBuffer {
+    private final FilmStorage filmStorage;
+    private final PopularFilmsLeaderboard leaderboard;
+    private final FilmRecommendations recommendations;
+    private final boolean enabled;
+    private final int capacity;
+
+    private final Object lock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<Long, Boolean> pending = new LinkedHashMap<>();
+
+    public LikeWriteBuffer(@Qualifier("cachingFilmStorage") FilmStorage filmStorage,
+                           PopularFilmsLeaderboard leaderboard,
+                           FilmRecommendations recommendations,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity) {
+        this.filmStorage = filmStorage;
+        this.leaderboard = leaderboard;
+        this.recommendations = recommendations;
+        this.enabled = enabled;
+        this.capacity = capacity;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(int filmId, int userId, boolean liked) {
+        long key = key(filmId, userId);
+        while (true) {
+            synchronized (lock) {
+                if (pending.size() < capacity || pending.containsKey(key)) {
+                    pending.put(key, liked);
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Boolean> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+
+            List<LikeChange> changes = new ArrayList<>(batch.size());
+            batch.forEach((key, liked) -> changes.add(new LikeChange((int) (key >>> 32), key.intValue(), liked)));
+            try {
+                filmStorage.applyLikes(changes).forEach(leaderboard::changeLikes);
+                changes.forEach(recommendations::apply);
+                log.debug("Сброшено изменений лайков: {}", changes.size());
+            } catch (RuntimeException e) {
+                // возвращаем неприменённые изменения, если их ещё не перекрыли более свежие
+                synchronized (lock) {
+                    batch.forEach(pending::putIfAbsent);
+                }
+                log.error("Не удалось сбросить буфер лайков ({} изменений): {}", changes.size(), e.getMessage());
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+        log.info("Буфер лайков сброшен при остановке");
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+}
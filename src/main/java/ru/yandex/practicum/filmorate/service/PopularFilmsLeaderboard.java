@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Рейтинг фильмов по числу лайков, который держится в памяти.
+ * Записи упорядочены по (likes desc, filmId asc), чтение топа не берёт блокировок.
+ * Версия растёт после каждого изменения порядка, в том числе при синхронизации с БД, - она входит в ETag популярных.
+ * Каждое живое изменение помечается номером из общей последовательности: синхронизация не трогает записи,
+ * изменённые после начала чтения снимка, - их счётчик свежее снимка, а расхождение поправит следующий проход.
+ */
+@Component
+public class PopularFilmsLeaderboard {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Integer, Slot> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Синхронизирует рейтинг со снимком счётчиков из БД. Фильмы, которых нет в снимке (удалённые), убираются;
+     * записи, изменённые после начала чтения снимка, остаются как есть.
+     */
+    public void reload(Supplier<Map<Integer, Integer>> snapshot) {
+        long mark = changes.get();
+        Map<Integer, Integer> likesCounts = snapshot.get();
+        likesCounts.forEach((filmId, likes) -> entries.compute(filmId, (id, old) -> old != null && old.changedAt() > mark
+                ? old
+                : replace(old, id, likes, old == null ? 0 : old.changedAt())));
+        for (Integer filmId : entries.keySet()) {
+            if (!likesCounts.containsKey(filmId)) {
+                entries.computeIfPresent(filmId, (id, old) -> old.changedAt() > mark ? old : remove(old));
+            }
+        }
+        loaded = true;
+    }
+
+    public void register(int filmId) {
+        entries.computeIfAbsent(filmId, id -> {
+            Entry entry = new Entry(id, 0);
+            ranking.add(entry);
+            version.incrementAndGet();
+            return new Slot(entry, changes.incrementAndGet());
+        });
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        entries.compute(filmId, (id, old) -> replace(old, id,
+                Math.max(0, (old == null ? 0 : old.entry().likes()) + delta), changes.incrementAndGet()));
+    }
+
+    public int likes(int filmId) {
+        Slot slot = entries.get(filmId);
+        return slot == null ? 0 : slot.entry().likes();
+    }
+
+    public List<Integer> top(int count) {
+        List<Integer> result = new ArrayList<>(Math.min(count, entries.size()));
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() == count) break;
+            // во время перестановки фильм может на мгновение встретиться дважды
+            if (seen.add(entry.filmId())) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    private Slot replace(Slot old, int filmId, int likes, long changedAt) {
+        Entry previous = old == null ? null : old.entry();
+        Entry updated = new Entry(filmId, likes);
+        ranking.add(updated);
+        if (previous != null && !previous.equals(updated)) {
+            ranking.remove(previous);
+        }
+        if (!updated.equals(previous)) {
+            version.incrementAndGet();
+        }
+        return new Slot(updated, changedAt);
+    }
+
+    private Slot remove(Slot old) {
+        ranking.remove(old.entry());
+        version.incrementAndGet();
+        return null;
+    }
+
+    private record Entry(int filmId, int likes) {
+    }
+
+    // changedAt - номер последнего живого изменения; синхронизация со снимком его не двигает
+    private record Slot(Entry entry, long changedAt) {
+    }
+}
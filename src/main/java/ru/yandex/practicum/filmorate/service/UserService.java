@@ -4,31 +4,38 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class UserService {
     private final UserStorage userStorage;
     private final FriendshipStorage friendshipStorage;
+    private final FriendSuggestions friendSuggestions;
 
     public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
-                       FriendshipStorage friendshipStorage) {
+                       FriendshipStorage friendshipStorage,
+                       FriendSuggestions friendSuggestions) {
         this.userStorage = userStorage;
         this.friendshipStorage = friendshipStorage;
+        this.friendSuggestions = friendSuggestions;
     }
 
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
+    public Page<User> findPage(Integer after, int limit) {
+        return Page.of(userStorage.findPage(after == null ? 0 : after, limit + 1), limit, User::getId);
+    }
+
     public User create(User user) {
         ensureNameForCreate(user);
         return userStorage.create(user);
@@ -65,6 +72,12 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("User с id " + id + " не найден"));
     }
 
+    public void checkExists(Integer id) {
+        if (!userStorage.exists(id)) {
+            throw new NotFoundException("User с id " + id + " не найден");
+        }
+    }
+
     public void addFriend(Integer userId, Integer friendId) {
         if (!userStorage.exists(userId) || !userStorage.exists(friendId)) {
             throw new NotFoundException("User не найден");
@@ -84,13 +97,9 @@ public class UserService {
     }
 
     public Collection<User> getFriends(Integer userId) {
-        if (!userStorage.exists(userId)) {
-            throw new NotFoundException("User с id " + userId + " не найден");
-        }
+        checkExists(userId);
         Set<Integer> friendsIds = friendshipStorage.getFriendsIds(userId);
-        return friendsIds.stream()
-                .map(this::getById)
-                .collect(Collectors.toList());
+        return userStorage.findAllByIds(new ArrayList<>(friendsIds));
     }
 
     public Collection<User> getCommonFriends(Integer userId, Integer otherId) {
@@ -98,15 +107,14 @@ public class UserService {
             throw new NotFoundException("User не найден");
         }
 
-        Set<Integer> userFriends = friendshipStorage.getFriendsIds(userId);
-        Set<Integer> otherFriends = friendshipStorage.getFriendsIds(otherId);
-
-        Set<Integer> common = new HashSet<>(userFriends);
-        common.retainAll(otherFriends);
+        return userStorage.findAllByIds(friendshipStorage.getCommonFriendsIds(userId, otherId));
+    }
 
-        return common.stream()
-                .map(this::getById)
-                .collect(Collectors.toList());
+    public Collection<User> getFriendSuggestions(Integer userId, int limit) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("User с id " + userId + " не найден");
+        }
+        return userStorage.findAllByIds(friendSuggestions.suggest(userId, limit));
     }
 
     private void ensureNameForCreate(User user) {
@@ -0,0 +1,311 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный по размеру LRU-кэш фильмов по id поверх {@link FilmDbStorage}.
+ * Записи сбрасываются после каждой изменяющей операции над фильмом; наружу отдаются копии,
+ * чтобы вызывающий код не мог испортить закэшированный объект. Кроме того, записи сбрасываются по событиям
+ * хранилища сразу после коммита - раньше, чем по тем же событиям вырастет версия фильма для ETag.
+ * Статистика - метрики cache.gets, cache.evictions и cache.size с тегом cache=films.
+ */
+@Repository("cachingFilmStorage")
+public class CachingFilmStorage implements FilmStorage, MeterBinder {
+    private static final int STRIPES = 1024;
+
+    private final FilmStorage delegate;
+    private final int maxSize;
+
+    private final Map<Key, Film> cache;
+    // версия растёт при каждой инвалидации фильма из своей полосы, эпоха - при полной очистке: значение,
+    // загруженное до них, в кэш уже не попадёт. Число полос фиксировано, поэтому память не растёт с числом
+    // изменённых фильмов, а изменение соседа по полосе лишь не даёт закэшировать одну загрузку
+    private final long[] versions = new long[STRIPES];
+    private long epoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingFilmStorage(@Qualifier("filmDbStorage") FilmStorage delegate,
+                              @Value("${filmorate.cache.films.max-size:1000}") int maxSize) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Film> eldest) {
+                if (size() > CachingFilmStorage.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Collection<Film> findAll(FilmProjection projection) {
+        return delegate.findAll(projection);
+    }
+
+    @Override
+    public List<Film> findPage(int afterId, int limit, FilmProjection projection) {
+        return delegate.findPage(afterId, limit, projection);
+    }
+
+    @Override
+    public Optional<Film> findById(Integer id, FilmProjection projection) {
+        Key key = new Key(id, projection);
+        Stamp stamp;
+        synchronized (this) {
+            Film cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(Film.copyOf(cached));
+            }
+            stamp = stamp(id);
+        }
+        misses.increment();
+
+        Optional<Film> loaded = delegate.findById(id, projection);
+        loaded.ifPresent(film -> put(key, film, stamp));
+        return loaded.map(Film::copyOf);
+    }
+
+    @Override
+    public Collection<Film> findByIds(List<Integer> ids, FilmProjection projection) {
+        Map<Integer, Film> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        Map<Integer, Stamp> stamps = new HashMap<>();
+        synchronized (this) {
+            for (Integer id : ids) {
+                Film cached = cache.get(new Key(id, projection));
+                if (cached != null) {
+                    found.put(id, Film.copyOf(cached));
+                } else {
+                    missing.add(id);
+                    stamps.put(id, stamp(id));
+                }
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+
+        if (!missing.isEmpty()) {
+            for (Film film : delegate.findByIds(missing, projection)) {
+                put(new Key(film.getId(), projection), film, stamps.get(film.getId()));
+                found.put(film.getId(), Film.copyOf(film));
+            }
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public void exportAll(FilmProjection projection, Consumer<Film> consumer) {
+        delegate.exportAll(projection, consumer);
+    }
+
+    // JSON пишется прямо из выборки, мимо кэша
+    @Override
+    public void writeAll(JsonGenerator generator) {
+        delegate.writeAll(generator);
+    }
+
+    @Override
+    public void writeMostPopular(int count, JsonGenerator generator) {
+        delegate.writeMostPopular(count, generator);
+    }
+
+    @Override
+    public void writeByIds(List<Integer> ids, JsonGenerator generator) {
+        delegate.writeByIds(ids, generator);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public boolean exists(Integer id) {
+        synchronized (this) {
+            if (cache.containsKey(new Key(id, FilmProjection.COUNTS))
+                    || cache.containsKey(new Key(id, FilmProjection.FULL))) {
+                return true;
+            }
+        }
+        return delegate.exists(id);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Integer filmId, Integer userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            invalidate(filmId);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> applyLikes(List<LikeChange> changes) {
+        try {
+            return delegate.applyLikes(changes);
+        } finally {
+            synchronized (this) {
+                changes.forEach(change -> invalidate(change.filmId()));
+            }
+        }
+    }
+
+    @Override
+    public Collection<Film> findMostPopular(int count, FilmProjection projection) {
+        return delegate.findMostPopular(count, projection);
+    }
+
+    @Override
+    public void rebuildLikesCount() {
+        try {
+            delegate.rebuildLikesCount();
+        } finally {
+            clear();
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> findLikesCounts() {
+        return delegate.findLikesCounts();
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        delegate.forEachLike(consumer);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        invalidate(event.id());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onLikesChanged(FilmLikesChangedEvent event) {
+        event.filmIds().forEach(this::invalidate);
+    }
+
+    // Spring Boot привязывает бины MeterBinder к своему реестру, поэтому метрики есть на /actuator/prometheus
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", "films", "result", "hit")
+                .description("Чтения фильмов по id, отданные из кэша")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", "films", "result", "miss")
+                .description("Чтения фильмов по id, загруженные из хранилища")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", "films")
+                .description("Фильмы, вытесненные из кэша по размеру")
+                .register(registry);
+        Gauge.builder("cache.size", this, CachingFilmStorage::getSize)
+                .tags("cache", "films")
+                .description("Записей в кэше фильмов")
+                .register(registry);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int getSize() {
+        return cache.size();
+    }
+
+    public synchronized void clear() {
+        epoch++;
+        cache.clear();
+    }
+
+    private Stamp stamp(Integer id) {
+        return new Stamp(epoch, versions[stripe(id)]);
+    }
+
+    private synchronized void put(Key key, Film film, Stamp stamp) {
+        if (stamp.equals(stamp(key.id()))) {
+            cache.put(key, Film.copyOf(film));
+        }
+    }
+
+    private synchronized void invalidate(Integer id) {
+        versions[stripe(id)]++;
+        cache.remove(new Key(id, FilmProjection.COUNTS));
+        cache.remove(new Key(id, FilmProjection.FULL));
+    }
+
+    private static int stripe(Integer id) {
+        return id & (STRIPES - 1);
+    }
+
+    private record Key(Integer id, FilmProjection projection) {
+    }
+
+    private record Stamp(long epoch, long version) {
+    }
+}
@@ -1,97 +1,274 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.StorageMetricsPostProcessor;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository("filmDbStorage")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
 
+    private static final int GENRE_ROWS_PER_STATEMENT = 100;
+    private static final int LIKE_BATCH_SIZE = 500;
+    private static final int IDS_CHUNK_SIZE = 1000;
+    private static final String SELECT_FILMS = """
+            SELECT f.id, f.name, f.description, f.release_date, f.duration, f.likes_count, f.mpa_id
+            FROM films f
+            """;
+    // фильмы с жанрами одной выборкой: строки фильма идут подряд, его жанры - по возрастанию id
+    private static final String SELECT_FILMS_WITH_GENRES = """
+            SELECT f.id, f.name, f.description, f.release_date, f.duration, f.likes_count, f.mpa_id, fg.genre_id
+            FROM %s
+            LEFT JOIN film_genres fg ON fg.film_id = f.id
+            ORDER BY %s, fg.genre_id
+            """;
+
     private final JdbcTemplate jdbcTemplate;
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Override
-    public Collection<Film> findAll() {
-        String sql = """
-                SELECT f.id, f.name, f.description, f.release_date, f.duration,
-                       m.id AS mpa_id, m.name AS mpa_name
-                FROM films f
-                JOIN mpa_ratings m ON f.mpa_id = m.id
-                """;
+    // сколько строк жанров и лайков приходится догружать к выборкам фильмов
+    private final DistributionSummary genreRows = rowsSummary("loadGenres");
+    private final DistributionSummary likeRows = rowsSummary("loadLikes");
 
-        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = new Film();
-            film.setId(rs.getInt("id"));
-            film.setName(rs.getString("name"));
-            film.setDescription(rs.getString("description"));
-            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-            film.setDuration(rs.getInt("duration"));
-
-            Mpa mpa = new Mpa();
-            mpa.setId(rs.getInt("mpa_id"));
-            mpa.setName(rs.getString("mpa_name"));
-            film.setMpa(mpa);
-
-            film.setGenres(new LinkedHashSet<>());
-            film.setLikes(new LinkedHashSet<>());
-            return film;
-        });
+    @Value("${filmorate.export.fetch-size:1000}")
+    private int exportFetchSize;
 
-        loadGenres(films);
-        loadLikes(films);
+    @Override
+    public Collection<Film> findAll(FilmProjection projection) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS, this::mapRowToFilm);
+
+        hydrate(films, projection);
 
         return films;
     }
 
     @Override
-    public Optional<Film> findById(Integer id) {
-        String sql = """
-                SELECT f.id, f.name, f.description, f.release_date, f.duration,
-                       m.id AS mpa_id, m.name AS mpa_name
-                FROM films f
-                JOIN mpa_ratings m ON f.mpa_id = m.id
-                WHERE f.id = ?
-                """;
+    public List<Film> findPage(int afterId, int limit, FilmProjection projection) {
+        String sql = SELECT_FILMS + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
 
-        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = new Film();
-            film.setId(rs.getInt("id"));
-            film.setName(rs.getString("name"));
-            film.setDescription(rs.getString("description"));
-            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-            film.setDuration(rs.getInt("duration"));
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, afterId, limit);
 
-            Mpa mpa = new Mpa();
-            mpa.setId(rs.getInt("mpa_id"));
-            mpa.setName(rs.getString("mpa_name"));
-            film.setMpa(mpa);
+        hydrate(films, projection);
+
+        return films;
+    }
+
+    @Override
+    public Optional<Film> findById(Integer id, FilmProjection projection) {
+        String sql = SELECT_FILMS + "WHERE f.id = ?";
 
-            film.setGenres(new LinkedHashSet<>());
-            film.setLikes(new LinkedHashSet<>());
-            return film;
-        }, id);
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, id);
 
         if (films.isEmpty()) {
             return Optional.empty();
         }
 
         Film film = films.getFirst();
-        loadGenres(List.of(film));
-        loadLikes(List.of(film));
+        hydrate(List.of(film), projection);
         return Optional.of(film);
     }
 
     @Override
+    public Collection<Film> findByIds(List<Integer> ids, FilmProjection projection) {
+        if (ids.isEmpty()) return List.of();
+
+        String inSql = ids.stream().map(i -> "?").collect(Collectors.joining(","));
+        String sql = SELECT_FILMS + "WHERE f.id IN (" + inSql + ")";
+
+        Map<Integer, Film> filmMap = jdbcTemplate.query(sql, this::mapRowToFilm, ids.toArray()).stream()
+                .collect(Collectors.toMap(Film::getId, f -> f));
+        List<Film> films = ids.stream()
+                .map(filmMap::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        hydrate(films, projection);
+
+        return films;
+    }
+
+    @Override
+    public void exportAll(FilmProjection projection, Consumer<Film> consumer) {
+        String genresSql = "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+        String likesSql = "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id";
+        boolean withLikes = projection == FilmProjection.FULL;
+
+        // курсоры идут по film_id синхронно, поэтому в памяти всегда только текущий фильм;
+        // в проекции COUNTS курсор по film_likes не открывается
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement filmsPs = prepareCursor(connection, SELECT_FILMS + "ORDER BY f.id");
+                 PreparedStatement genresPs = prepareCursor(connection, genresSql);
+                 PreparedStatement likesPs = withLikes ? prepareCursor(connection, likesSql) : null;
+                 ResultSet films = filmsPs.executeQuery();
+                 ResultSet genres = genresPs.executeQuery();
+                 ResultSet likes = withLikes ? likesPs.executeQuery() : null) {
+                boolean hasGenre = genres.next();
+                boolean hasLike = withLikes && likes.next();
+                int rowNum = 0;
+                while (films.next()) {
+                    Film film = mapRowToFilm(films, rowNum++);
+                    int filmId = film.getId();
+
+                    while (hasGenre && genres.getInt("film_id") < filmId) {
+                        hasGenre = genres.next();
+                    }
+                    while (hasGenre && genres.getInt("film_id") == filmId) {
+                        film.getGenres().add(genre(genres.getInt("genre_id")));
+                        hasGenre = genres.next();
+                    }
+
+                    while (hasLike && likes.getInt("film_id") < filmId) {
+                        hasLike = likes.next();
+                    }
+                    while (hasLike && likes.getInt("film_id") == filmId) {
+                        film.getLikes().add(likes.getInt("user_id"));
+                        hasLike = likes.next();
+                    }
+                    if (!withLikes) {
+                        film.setLikes(null);
+                    }
+
+                    consumer.accept(film);
+                }
+            }
+            return null;
+        });
+    }
+
+    // JSON в проекции COUNTS прямо из выборки, без объектов Film: тот же вид, что у Jackson для findAll/findByIds
+    @Override
+    public void writeAll(JsonGenerator generator) {
+        String genresSql = "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+
+        // как в exportAll: курсоры фильмов и жанров идут по film_id синхронно
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement filmsPs = prepareCursor(connection, SELECT_FILMS + "ORDER BY f.id");
+                 PreparedStatement genresPs = prepareCursor(connection, genresSql);
+                 ResultSet films = filmsPs.executeQuery();
+                 ResultSet genres = genresPs.executeQuery()) {
+                FilmJsonWriter writer = new FilmJsonWriter(generator);
+                generator.writeStartArray();
+                boolean hasGenre = genres.next();
+                while (films.next()) {
+                    int filmId = films.getInt("id");
+                    writer.startFilm(films, mpa(films.getInt("mpa_id")));
+                    while (hasGenre && genres.getInt("film_id") < filmId) {
+                        hasGenre = genres.next();
+                    }
+                    while (hasGenre && genres.getInt("film_id") == filmId) {
+                        writer.genre(genre(genres.getInt("genre_id")));
+                        hasGenre = genres.next();
+                    }
+                    writer.endFilm();
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void writeMostPopular(int count, JsonGenerator generator) {
+        String sql = SELECT_FILMS_WITH_GENRES.formatted(
+                "(" + SELECT_FILMS + "ORDER BY f.likes_count DESC, f.id LIMIT ?) f",
+                "f.likes_count DESC, f.id");
+        writeArray(generator, () -> jdbcTemplate.query(sql, joinedFilmsWriter(generator), count));
+    }
+
+    // список id режется на части, как в UserDbStorage.findAllByIds; части пишутся в один массив по порядку ids
+    @Override
+    public void writeByIds(List<Integer> ids, JsonGenerator generator) {
+        String sql = SELECT_FILMS_WITH_GENRES.formatted("""
+                UNNEST(CAST(? AS INTEGER ARRAY)) WITH ORDINALITY AS t(id, pos)
+                JOIN films f ON f.id = t.id""", "t.pos");
+        writeArray(generator, () -> {
+            for (int from = 0; from < ids.size(); from += IDS_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + IDS_CHUNK_SIZE, ids.size()));
+                jdbcTemplate.query(sql, joinedFilmsWriter(generator), (Object) chunk.toArray(Integer[]::new));
+            }
+        });
+    }
+
+    private static void writeArray(JsonGenerator generator, Runnable elements) {
+        try {
+            generator.writeStartArray();
+            elements.run();
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // элементы массива из выборки SELECT_FILMS_WITH_GENRES; скобки массива пишет вызывающий
+    private ResultSetExtractor<Void> joinedFilmsWriter(JsonGenerator generator) {
+        return rs -> {
+            FilmJsonWriter writer = new FilmJsonWriter(generator);
+            try {
+                boolean started = false;
+                int current = 0;
+                while (rs.next()) {
+                    int filmId = rs.getInt("id");
+                    if (!started || filmId != current) {
+                        if (started) {
+                            writer.endFilm();
+                        }
+                        writer.startFilm(rs, mpa(rs.getInt("mpa_id")));
+                        started = true;
+                        current = filmId;
+                    }
+                    int genreId = rs.getInt("genre_id");
+                    if (!rs.wasNull()) {
+                        writer.genre(genre(genreId));
+                    }
+                }
+                if (started) {
+                    writer.endFilm();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        };
+    }
+
+    @Override
+    @Transactional
     public Film create(Film film) {
         String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
@@ -110,12 +287,56 @@ public class FilmDbStorage implements FilmStorage {
 
         Integer id = keyHolder.getKey().intValue();
         film.setId(id);
+        film.setLikesCount(0);
 
-        updateGenres(film);
+        batchGenres("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", id, genreIds(film));
+        publishSaved(film);
         return film;
     }
 
     @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) return films;
+
+        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(4, film.getDuration());
+                        ps.setInt(5, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        // ключи приходят в порядке строк пакета
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<int[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            film.setLikesCount(0);
+            genreIds(film).forEach(genreId -> filmGenres.add(new int[]{film.getId(), genreId}));
+        }
+        insertFilmGenres(filmGenres);
+        films.forEach(this::publishSaved);
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Film update(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
                 "WHERE id = ?";
@@ -130,6 +351,7 @@ public class FilmDbStorage implements FilmStorage {
         );
 
         updateGenres(film);
+        publishSaved(film);
         return film;
     }
 
@@ -141,52 +363,158 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(Integer filmId, Integer userId) {
-        String sql = "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    @Transactional
+    public boolean addLike(Integer filmId, Integer userId) {
+        String sql = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(sql, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            // лайк успел вставить параллельный запрос, он же и увеличил счётчик
+            return false;
+        }
+        if (inserted == 0) {
+            return false;
+        }
+        changeLikesCount(filmId, 1);
+        eventPublisher.publishEvent(new FilmLikesChangedEvent(List.of(filmId)));
+        return true;
     }
 
     @Override
-    public void removeLike(Integer filmId, Integer userId) {
+    @Transactional
+    public boolean removeLike(Integer filmId, Integer userId) {
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        int deleted = jdbcTemplate.update(sql, filmId, userId);
+        if (deleted == 0) {
+            return false;
+        }
+        changeLikesCount(filmId, -1);
+        eventPublisher.publishEvent(new FilmLikesChangedEvent(List.of(filmId)));
+        return true;
     }
 
+    // возвращает фактическое изменение числа лайков по фильмам: повторный лайк и снятие отсутствующего не считаются
     @Override
-    public Collection<Film> findMostPopular(int count) {
-        String sql = """
-                SELECT f.id, f.name, f.description, f.release_date, f.duration,
-                       m.id AS mpa_id, m.name AS mpa_name
-                FROM films f
-                JOIN mpa_ratings m ON f.mpa_id = m.id
-                LEFT JOIN film_likes fl ON f.id = fl.film_id
-                GROUP BY f.id, f.name, f.description, f.release_date, f.duration, m.id, m.name
-                ORDER BY COUNT(fl.user_id) DESC, f.id
+    @Transactional
+    public Map<Integer, Integer> applyLikes(List<LikeChange> changes) {
+        List<LikeChange> added = changes.stream().filter(LikeChange::liked).toList();
+        List<LikeChange> removed = changes.stream().filter(change -> !change.liked()).toList();
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        collectDeltas(deltas, added, 1, jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) " +
+                        "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)",
+                added, LIKE_BATCH_SIZE, (ps, change) -> {
+                    ps.setInt(1, change.filmId());
+                    ps.setInt(2, change.userId());
+                    ps.setInt(3, change.filmId());
+                    ps.setInt(4, change.userId());
+                }));
+        collectDeltas(deltas, removed, -1, jdbcTemplate.batchUpdate(
+                "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                removed, LIKE_BATCH_SIZE, (ps, change) -> {
+                    ps.setInt(1, change.filmId());
+                    ps.setInt(2, change.userId());
+                }));
+        // лайк и снятие другого лайка того же фильма дают нулевую разницу, но набор лайков изменился
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new FilmLikesChangedEvent(List.copyOf(deltas.keySet())));
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+
+        List<Map.Entry<Integer, Integer>> counters = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                counters, LIKE_BATCH_SIZE, (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setInt(2, entry.getKey());
+                });
+        return deltas;
+    }
+
+    private void collectDeltas(Map<Integer, Integer> deltas, List<LikeChange> changes, int sign, int[][] counts) {
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count > 0) {
+                    deltas.merge(changes.get(index).filmId(), sign, Integer::sum);
+                }
+                index++;
+            }
+        }
+    }
+
+    @Override
+    public Collection<Film> findMostPopular(int count, FilmProjection projection) {
+        String sql = SELECT_FILMS + """
+                ORDER BY f.likes_count DESC, f.id
                 LIMIT ?
                 """;
 
-        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = new Film();
-            film.setId(rs.getInt("id"));
-            film.setName(rs.getString("name"));
-            film.setDescription(rs.getString("description"));
-            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-            film.setDuration(rs.getInt("duration"));
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, count);
 
-            Mpa mpa = new Mpa();
-            mpa.setId(rs.getInt("mpa_id"));
-            mpa.setName(rs.getString("mpa_name"));
-            film.setMpa(mpa);
+        hydrate(films, projection);
 
-            film.setGenres(new LinkedHashSet<>());
-            film.setLikes(new LinkedHashSet<>());
-            return film;
-        }, count);
+        return films;
+    }
 
-        loadGenres(films);
-        loadLikes(films);
+    @Override
+    public void rebuildLikesCount() {
+        String sql = """
+                UPDATE films f
+                SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)
+                """;
+        jdbcTemplate.update(sql);
+    }
 
-        return films;
+    @Override
+    public Map<Integer, Integer> findLikesCounts() {
+        String sql = "SELECT id, likes_count FROM films";
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getInt("id"), rs.getInt("likes_count"));
+        });
+        return counts;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        String sql = "SELECT film_id, user_id FROM film_likes";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(rs.getInt("film_id"), rs.getInt("user_id"));
+        });
+    }
+
+    private PreparedStatement prepareCursor(Connection connection, String sql) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(exportFetchSize);
+        return ps;
+    }
+
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        film.setLikesCount(rs.getInt("likes_count"));
+
+        film.setMpa(mpa(rs.getInt("mpa_id")));
+
+        film.setGenres(new LinkedHashSet<>());
+        film.setLikes(new LinkedHashSet<>());
+        return film;
+    }
+
+    private void hydrate(List<Film> films, FilmProjection projection) {
+        loadGenres(films);
+        if (projection == FilmProjection.FULL) {
+            loadLikes(films);
+        } else {
+            films.forEach(f -> f.setLikes(null));
+        }
     }
 
     private void loadGenres(Collection<Film> films) {
@@ -194,22 +522,28 @@ public class FilmDbStorage implements FilmStorage {
         List<Integer> ids = films.stream().map(Film::getId).toList();
 
         String inSql = ids.stream().map(i -> "?").collect(Collectors.joining(","));
-        String sql = """
-                SELECT fg.film_id, g.id, g.name
-                FROM film_genres fg
-                JOIN genres g ON fg.genre_id = g.id
-                WHERE fg.film_id IN (""" + inSql + ") ORDER BY g.id";
+        String sql = "SELECT film_id, genre_id FROM film_genres WHERE film_id IN (" + inSql + ") ORDER BY genre_id";
 
         Map<Integer, Film> filmMap = films.stream()
                 .collect(Collectors.toMap(Film::getId, f -> f));
 
+        int[] rows = new int[1];
         jdbcTemplate.query(sql, rs -> {
             Integer filmId = rs.getInt("film_id");
-            Genre genre = new Genre();
-            genre.setId(rs.getInt("id"));
-            genre.setName(rs.getString("name"));
-            filmMap.get(filmId).getGenres().add(genre);
+            filmMap.get(filmId).getGenres().add(genre(rs.getInt("genre_id")));
+            rows[0]++;
         }, ids.toArray());
+        genreRows.record(rows[0]);
+    }
+
+    private Mpa mpa(int id) {
+        return mpaStorage.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Рейтинг MPA с id " + id + " отсутствует в справочнике"));
+    }
+
+    private Genre genre(int id) {
+        return genreStorage.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Жанр с id " + id + " отсутствует в справочнике"));
     }
 
     private void loadLikes(Collection<Film> films) {
@@ -222,22 +556,94 @@ public class FilmDbStorage implements FilmStorage {
         Map<Integer, Film> filmMap = films.stream()
                 .collect(Collectors.toMap(Film::getId, f -> f));
 
+        int[] rows = new int[1];
         jdbcTemplate.query(sql, rs -> {
             Integer filmId = rs.getInt("film_id");
             Integer userId = rs.getInt("user_id");
             filmMap.get(filmId).getLikes().add(userId);
+            rows[0]++;
         }, ids.toArray());
+        likeRows.record(rows[0]);
+    }
+
+    private static DistributionSummary rowsSummary(String query) {
+        return DistributionSummary.builder(StorageMetricsPostProcessor.METRIC + ".rows")
+                .description("Число строк в результате запроса")
+                .tag("storage", FilmDbStorage.class.getSimpleName())
+                .tag("query", query)
+                .register(Metrics.globalRegistry);
+    }
+
+    private void publishSaved(Film film) {
+        eventPublisher.publishEvent(new FilmSavedEvent(film.getId(), film.getName(), film.getDescription(),
+                film.getReleaseDate(), film.getDuration(), film.getMpa().getId(), List.copyOf(genreIds(film))));
+    }
+
+    private void changeLikesCount(Integer filmId, int delta) {
+        String sql = "UPDATE films SET likes_count = likes_count + ? WHERE id = ?";
+        jdbcTemplate.update(sql, delta, filmId);
     }
 
     private void updateGenres(Film film) {
-        String deleteSql = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(deleteSql, film.getId());
+        Set<Integer> wanted = genreIds(film);
+        Set<Integer> stored = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Integer.class, film.getId()));
 
-        if (film.getGenres() == null || film.getGenres().isEmpty()) return;
+        List<Integer> toDelete = stored.stream().filter(id -> !wanted.contains(id)).toList();
+        List<Integer> toInsert = wanted.stream().filter(id -> !stored.contains(id)).toList();
 
-        String insertSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-        film.getGenres().forEach(g ->
-                jdbcTemplate.update(insertSql, film.getId(), g.getId())
-        );
+        batchGenres("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", film.getId(), toDelete);
+        batchGenres("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", film.getId(), toInsert);
+    }
+
+    private Set<Integer> genreIds(Film film) {
+        if (film.getGenres() == null) return Set.of();
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // многострочные INSERT по GENRE_ROWS_PER_STATEMENT пар, отправленные одним пакетом, и хвост отдельным запросом
+    private void insertFilmGenres(List<int[]> filmGenres) {
+        int fullChunks = filmGenres.size() / GENRE_ROWS_PER_STATEMENT;
+        if (fullChunks > 0) {
+            jdbcTemplate.batchUpdate(multiRowGenreInsert(GENRE_ROWS_PER_STATEMENT), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    setFilmGenres(ps, filmGenres.subList(i * GENRE_ROWS_PER_STATEMENT,
+                            (i + 1) * GENRE_ROWS_PER_STATEMENT));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return fullChunks;
+                }
+            });
+        }
+        List<int[]> tail = filmGenres.subList(fullChunks * GENRE_ROWS_PER_STATEMENT, filmGenres.size());
+        if (!tail.isEmpty()) {
+            jdbcTemplate.update(multiRowGenreInsert(tail.size()), ps -> setFilmGenres(ps, tail));
+        }
+    }
+
+    private String multiRowGenreInsert(int rows) {
+        return "INSERT INTO film_genres (film_id, genre_id) VALUES " +
+                String.join(",", Collections.nCopies(rows, "(?, ?)"));
+    }
+
+    private void setFilmGenres(PreparedStatement ps, List<int[]> filmGenres) throws SQLException {
+        int index = 1;
+        for (int[] pair : filmGenres) {
+            ps.setInt(index++, pair[0]);
+            ps.setInt(index++, pair[1]);
+        }
+    }
+
+    private void batchGenres(String sql, Integer filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) return;
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Пишет фильмы в проекции COUNTS прямо из строк выборки - в том же виде и порядке полей, что Jackson для Film
+final class FilmJsonWriter {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString RELEASE_DATE = new SerializedString("releaseDate");
+    private static final SerializableString DURATION = new SerializedString("duration");
+    private static final SerializableString LIKES_COUNT = new SerializedString("likesCount");
+    private static final SerializableString MPA = new SerializedString("mpa");
+    private static final SerializableString GENRES = new SerializedString("genres");
+    private static final SerializableString RELEASE_DATE_VALID = new SerializedString("releaseDateValid");
+
+    private final JsonGenerator generator;
+    private LocalDate releaseDate;
+
+    FilmJsonWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    // поля фильма до жанров включительно открытого массива; строка - SELECT_FILMS
+    void startFilm(ResultSet rs, Mpa mpa) throws SQLException, IOException {
+        releaseDate = rs.getObject("release_date", LocalDate.class);
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(rs.getInt("id"));
+        generator.writeFieldName(NAME);
+        generator.writeString(rs.getString("name"));
+        generator.writeFieldName(DESCRIPTION);
+        generator.writeString(rs.getString("description"));
+        generator.writeFieldName(RELEASE_DATE);
+        generator.writeString(releaseDate.toString());
+        generator.writeFieldName(DURATION);
+        generator.writeNumber(rs.getInt("duration"));
+        generator.writeFieldName(LIKES_COUNT);
+        generator.writeNumber(rs.getInt("likes_count"));
+        generator.writeFieldName(MPA);
+        writeReference(mpa.getId(), mpa.getName());
+        generator.writeFieldName(GENRES);
+        generator.writeStartArray();
+    }
+
+    void genre(Genre genre) throws IOException {
+        writeReference(genre.getId(), genre.getName());
+    }
+
+    void endFilm() throws IOException {
+        generator.writeEndArray();
+        generator.writeFieldName(RELEASE_DATE_VALID);
+        generator.writeBoolean(Film.isReleaseDateValid(releaseDate));
+        generator.writeEndObject();
+    }
+
+    private void writeReference(int id, String name) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(id);
+        generator.writeFieldName(NAME);
+        generator.writeString(name);
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Collection;
+
+// публикуется, когда у фильмов изменился набор лайков; слушатели получают его после коммита транзакции
+public record FilmLikesChangedEvent(Collection<Integer> filmIds) {
+}
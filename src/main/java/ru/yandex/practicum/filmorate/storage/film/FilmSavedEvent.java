@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// публикуется при создании и обновлении фильма, слушатели получают его после коммита транзакции
+public record FilmSavedEvent(int id, String name, String description, LocalDate releaseDate, int duration,
+                             int mpaId, List<Integer> genreIds) {
+}
@@ -1,24 +1,53 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
-    Collection<Film> findAll();
+    Collection<Film> findAll(FilmProjection projection);
 
-    Optional<Film> findById(Integer id);
+    List<Film> findPage(int afterId, int limit, FilmProjection projection);
+
+    Optional<Film> findById(Integer id, FilmProjection projection);
+
+    Collection<Film> findByIds(List<Integer> ids, FilmProjection projection);
+
+    void exportAll(FilmProjection projection, Consumer<Film> consumer);
+
+    void writeAll(JsonGenerator generator);
+
+    void writeMostPopular(int count, JsonGenerator generator);
+
+    void writeByIds(List<Integer> ids, JsonGenerator generator);
 
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     boolean exists(Integer id);
 
-    void addLike(Integer filmId, Integer userId);
+    boolean addLike(Integer filmId, Integer userId);
+
+    boolean removeLike(Integer filmId, Integer userId);
+
+    Map<Integer, Integer> applyLikes(List<LikeChange> changes);
+
+    Collection<Film> findMostPopular(int count, FilmProjection projection);
+
+    void rebuildLikesCount();
 
-    void removeLike(Integer filmId, Integer userId);
+    Map<Integer, Integer> findLikesCounts();
 
-    Collection<Film> findMostPopular(int count);
-}
\ No newline at end of file
+    void forEachLike(BiConsumer<Integer, Integer> consumer);
+}
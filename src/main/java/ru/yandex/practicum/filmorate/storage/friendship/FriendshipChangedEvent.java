@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+// публикуется при добавлении и удалении друга: изменился список друзей userId
+public record FriendshipChangedEvent(int userId) {
+}
@@ -1,34 +1,114 @@
 package ru.yandex.practicum.filmorate.storage.friendship;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Repository
 @RequiredArgsConstructor
 public class FriendshipDbStorage implements FriendshipStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${filmorate.suggestions.max-neighbour-degree:5000}")
+    private int maxNeighbourDegree;
+    @Value("${filmorate.suggestions.max-visited:200000}")
+    private int maxVisited;
 
     @Override
     public void addFriend(Integer userId, Integer friendId) {
-        String sql = "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, userId, friendId);
+        insert(userId, friendId);
+        publishChanged(userId);
     }
 
     @Override
     public void removeFriend(Integer userId, Integer friendId) {
-        String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+        if (delete(userId, friendId)) {
+            publishChanged(userId);
+        }
+    }
+
+    // запись без события: обёртки сначала обновляют своё состояние и только потом публикуют событие
+    void insert(Integer userId, Integer friendId) {
+        String sql = "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, userId, friendId);
     }
 
+    boolean delete(Integer userId, Integer friendId) {
+        String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+        return jdbcTemplate.update(sql, userId, friendId) > 0;
+    }
+
+    void publishChanged(Integer userId) {
+        eventPublisher.publishEvent(new FriendshipChangedEvent(userId));
+    }
+
     @Override
     public Set<Integer> getFriendsIds(Integer userId) {
-        String sql = "SELECT friend_id FROM friendships WHERE user_id = ?";
-        return new HashSet<>(jdbcTemplate.query(sql,
+        String sql = "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id";
+        return new LinkedHashSet<>(jdbcTemplate.query(sql,
                 (rs, rowNum) -> rs.getInt("friend_id"), userId));
     }
+
+    @Override
+    public List<Integer> getCommonFriendsIds(Integer userId, Integer otherId) {
+        String sql = "SELECT a.friend_id FROM friendships a " +
+                "JOIN friendships b ON b.friend_id = a.friend_id AND b.user_id = ? " +
+                "WHERE a.user_id = ? ORDER BY a.friend_id";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("friend_id"), otherId, userId);
+    }
+
+    @Override
+    public int getFriendsCount(Integer userId) {
+        String sql = "SELECT COUNT(*) FROM friendships WHERE user_id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Кандидаты - друзья друзей, которые ещё не в друзьях; ранг - число общих друзей.
+     * Ограничения обхода те же, что у индекса в памяти ({@link ru.yandex.practicum.filmorate.util.FriendGraph}):
+     * у каждого друга берётся не больше maxNeighbourDegree связей, всего - не больше maxVisited,
+     * поэтому группировка и сортировка не разрастаются на друзьях-«звёздах».
+     */
+    @Override
+    public List<Integer> getSuggestedFriendsIds(Integer userId, int limit) {
+        String sql = """
+                SELECT v.candidate_id
+                FROM (
+                    SELECT n.candidate_id
+                    FROM (
+                        SELECT f2.user_id AS via_id, f2.friend_id AS candidate_id,
+                               ROW_NUMBER() OVER (PARTITION BY f2.user_id ORDER BY f2.friend_id) AS rn
+                        FROM friendships f1
+                        JOIN friendships f2 ON f2.user_id = f1.friend_id
+                        WHERE f1.user_id = ?
+                    ) n
+                    WHERE n.rn <= ?
+                    ORDER BY n.via_id, n.candidate_id
+                    LIMIT ?
+                ) v
+                WHERE v.candidate_id <> ?
+                  AND NOT EXISTS (SELECT 1 FROM friendships f3 WHERE f3.user_id = ? AND f3.friend_id = v.candidate_id)
+                GROUP BY v.candidate_id
+                ORDER BY COUNT(*) DESC, v.candidate_id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getInt("candidate_id"),
+                userId, maxNeighbourDegree, maxVisited, userId, userId, limit);
+    }
+
+    public void forEachFriendship(BiConsumer<Integer, Integer> consumer) {
+        String sql = "SELECT user_id, friend_id FROM friendships";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(rs.getInt("user_id"), rs.getInt("friend_id")));
+    }
 }
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.friendship;
 
+import java.util.List;
 import java.util.Set;
 
 public interface FriendshipStorage {
@@ -9,4 +10,10 @@ public interface FriendshipStorage {
     void removeFriend(Integer userId, Integer friendId);
 
     Set<Integer> getFriendsIds(Integer userId);
+
+    List<Integer> getCommonFriendsIds(Integer userId, Integer otherId);
+
+    int getFriendsCount(Integer userId);
+
+    List<Integer> getSuggestedFriendsIds(Integer userId, int limit);
 }
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.util.FriendGraph;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище дружбы с индексом в памяти: запись идёт в БД, чтение списков друзей и общих друзей -
+ * из {@link FriendGraph}. Индекс строится из таблицы friendships при старте. Событие об изменении дружбы
+ * публикуется только после обновления индекса, чтобы по новой версии списка друзей не отдать старый список.
+ * Запись в БД и правка индекса для одной пары идут под одной блокировкой из полосы: иначе одновременные
+ * добавление и удаление пары могли бы оставить БД и индекс в разных состояниях.
+ */
+@Slf4j
+@Primary
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.friendship.index.enabled", havingValue = "true")
+public class IndexedFriendshipStorage implements FriendshipStorage {
+
+    private final FriendshipDbStorage delegate;
+    private static final int LOCK_STRIPES = 64;
+
+    private final FriendGraph graph = new FriendGraph();
+    private final Lock[] locks = IntStream.range(0, LOCK_STRIPES)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(Lock[]::new);
+
+    @Value("${filmorate.suggestions.max-neighbour-degree:5000}")
+    private int maxNeighbourDegree;
+    @Value("${filmorate.suggestions.max-visited:200000}")
+    private int maxVisited;
+
+    @PostConstruct
+    public void rebuild() {
+        graph.clear();
+        delegate.forEachFriendship(graph::add);
+        log.info("Индекс дружбы построен: {} связей, ~{} КБ", graph.edgeCount(), graph.estimatedBytes() / 1024);
+    }
+
+    @Override
+    public void addFriend(Integer userId, Integer friendId) {
+        Lock lock = lockFor(userId, friendId);
+        lock.lock();
+        try {
+            delegate.insert(userId, friendId);
+            graph.add(userId, friendId);
+        } finally {
+            lock.unlock();
+        }
+        delegate.publishChanged(userId);
+    }
+
+    @Override
+    public void removeFriend(Integer userId, Integer friendId) {
+        boolean deleted;
+        Lock lock = lockFor(userId, friendId);
+        lock.lock();
+        try {
+            deleted = delegate.delete(userId, friendId);
+            // строки в БД нет в любом случае, поэтому и в индексе её быть не должно
+            graph.remove(userId, friendId);
+        } finally {
+            lock.unlock();
+        }
+        if (deleted) {
+            delegate.publishChanged(userId);
+        }
+    }
+
+    // записи идут без внешней транзакции, поэтому порядок коммитов пары совпадает с порядком правок индекса
+    private Lock lockFor(int userId, int friendId) {
+        return locks[Math.floorMod(31 * userId + friendId, LOCK_STRIPES)];
+    }
+
+    @Override
+    public Set<Integer> getFriendsIds(Integer userId) {
+        return Arrays.stream(graph.friendsOf(userId)).boxed()
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public List<Integer> getCommonFriendsIds(Integer userId, Integer otherId) {
+        return Arrays.stream(graph.commonFriends(userId, otherId)).boxed().toList();
+    }
+
+    @Override
+    public int getFriendsCount(Integer userId) {
+        return graph.degree(userId);
+    }
+
+    @Override
+    public List<Integer> getSuggestedFriendsIds(Integer userId, int limit) {
+        return Arrays.stream(graph.suggest(userId, limit, maxNeighbourDegree, maxVisited)).boxed().toList();
+    }
+}
@@ -1,39 +1,47 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    @Override
-    public Collection<Genre> findAll() {
+    // справочник крошечный и почти не меняется: читаем его один раз и раздаём общие экземпляры
+    private Map<Integer, Genre> genres = Map.of();
+
+    @PostConstruct
+    public void load() {
         String sql = "SELECT id, name FROM genres ORDER BY id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Genre g = new Genre();
-            g.setId(rs.getInt("id"));
-            g.setName(rs.getString("name"));
-            return g;
+        Map<Integer, Genre> loaded = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Genre g = new Genre(rs.getInt("id"), rs.getString("name"));
+            loaded.put(g.getId(), g);
         });
+        genres = Collections.unmodifiableMap(loaded);
+        log.info("Загружено жанров: {}", genres.size());
+    }
+
+    @Override
+    public Collection<Genre> findAll() {
+        return genres.values();
     }
 
     @Override
     public Optional<Genre> findById(Integer id) {
-        String sql = "SELECT id, name FROM genres WHERE id = ?";
-        var list = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Genre g = new Genre();
-            g.setId(rs.getInt("id"));
-            g.setName(rs.getString("name"));
-            return g;
-        }, id);
-        return list.stream().findFirst();
+        return Optional.ofNullable(genres.get(id));
     }
 }
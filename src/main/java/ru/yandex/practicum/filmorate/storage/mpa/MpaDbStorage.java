@@ -1,39 +1,47 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class MpaDbStorage implements MpaStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    @Override
-    public Collection<Mpa> findAll() {
+    // справочник крошечный и почти не меняется: читаем его один раз и раздаём общие экземпляры
+    private Map<Integer, Mpa> ratings = Map.of();
+
+    @PostConstruct
+    public void load() {
         String sql = "SELECT id, name FROM mpa_ratings ORDER BY id";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Mpa m = new Mpa();
-            m.setId(rs.getInt("id"));
-            m.setName(rs.getString("name"));
-            return m;
+        Map<Integer, Mpa> loaded = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Mpa m = new Mpa(rs.getInt("id"), rs.getString("name"));
+            loaded.put(m.getId(), m);
         });
+        ratings = Collections.unmodifiableMap(loaded);
+        log.info("Загружено рейтингов MPA: {}", ratings.size());
+    }
+
+    @Override
+    public Collection<Mpa> findAll() {
+        return ratings.values();
     }
 
     @Override
     public Optional<Mpa> findById(Integer id) {
-        String sql = "SELECT id, name FROM mpa_ratings WHERE id = ?";
-        var list = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Mpa m = new Mpa();
-            m.setId(rs.getInt("id"));
-            m.setName(rs.getString("name"));
-            return m;
-        }, id);
-        return list.stream().findFirst();
+        return Optional.ofNullable(ratings.get(id));
     }
 }
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -9,42 +10,57 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Repository("userDbStorage")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
 
+    private static final int IDS_CHUNK_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Collection<User> findAll() {
         String sql = "SELECT id, email, login, name, birthday FROM users";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            User u = new User();
-            u.setId(rs.getInt("id"));
-            u.setEmail(rs.getString("email"));
-            u.setLogin(rs.getString("login"));
-            u.setName(rs.getString("name"));
-            u.setBirthday(rs.getDate("birthday").toLocalDate());
-            return u;
-        });
+        return jdbcTemplate.query(sql, this::mapRowToUser);
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        String sql = "SELECT id, email, login, name, birthday FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToUser, afterId, limit);
     }
 
     @Override
     public Optional<User> findById(Integer id) {
         String sql = "SELECT id, email, login, name, birthday FROM users WHERE id = ?";
-        var users = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            User u = new User();
-            u.setId(rs.getInt("id"));
-            u.setEmail(rs.getString("email"));
-            u.setLogin(rs.getString("login"));
-            u.setName(rs.getString("name"));
-            u.setBirthday(rs.getDate("birthday").toLocalDate());
-            return u;
-        }, id);
-        return users.stream().findFirst();
+        return jdbcTemplate.query(sql, this::mapRowToUser, id).stream().findFirst();
+    }
+
+    // IN-список режется на части, чтобы запрос не разрастался; порядок результата совпадает с порядком ids
+    @Override
+    public List<User> findAllByIds(List<Integer> ids) {
+        Map<Integer, User> users = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IDS_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IDS_CHUNK_SIZE, ids.size()));
+            String sql = "SELECT id, email, login, name, birthday FROM users WHERE id IN (" +
+                    String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sql, this::mapRowToUser, chunk.toArray()).forEach(u -> users.put(u.getId(), u));
+        }
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Override
@@ -77,6 +93,7 @@ public class UserDbStorage implements UserStorage {
                 Date.valueOf(user.getBirthday()),
                 user.getId()
         );
+        eventPublisher.publishEvent(new UserUpdatedEvent(user.getId()));
         return user;
     }
 
@@ -86,4 +103,14 @@ public class UserDbStorage implements UserStorage {
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
         return count != null && count > 0;
     }
+
+    private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
+        User u = new User();
+        u.setId(rs.getInt("id"));
+        u.setEmail(rs.getString("email"));
+        u.setLogin(rs.getString("login"));
+        u.setName(rs.getString("name"));
+        u.setBirthday(rs.getDate("birthday").toLocalDate());
+        return u;
+    }
 }
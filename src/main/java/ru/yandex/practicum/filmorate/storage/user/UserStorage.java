@@ -3,13 +3,18 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    List<User> findPage(int afterId, int limit);
+
     Optional<User> findById(Integer id);
 
+    List<User> findAllByIds(List<Integer> ids);
+
     User create(User user);
 
     User update(User user);
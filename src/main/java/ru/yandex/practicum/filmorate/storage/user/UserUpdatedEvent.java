@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+// публикуется при обновлении пользователя, слушатели получают его после коммита транзакции
+public record UserUpdatedEvent(int id) {
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фасетный индекс фильмов: номер бита или элемента массива - id фильма.
+ * Для каждого жанра и рейтинга MPA - своё битовое множество: значений мало, и их объединение и пересечение дёшевы.
+ * Год выпуска и длительность хранятся колонками по id фильма: множество на каждое значение заняло бы
+ * десятки мегабайт, а диапазон пришлось бы собирать объединением сотен множеств. Колонки проверяются
+ * только для фильмов, оставшихся после фильтров по жанру и рейтингу.
+ * Фильтры пересекаются AND, значения внутри одного фасета объединяются OR.
+ */
+public class FilmFacetIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet all = new BitSet();
+    private final Map<Integer, BitSet> byGenre = new TreeMap<>();
+    private final Map<Integer, BitSet> byMpa = new TreeMap<>();
+    private short[] years = new short[16];
+    private int[] durations = new int[16];
+    // рейтинг фильма, чтобы при обновлении снять его с прежнего множества
+    private int[] mpas = new int[16];
+
+    public void put(int filmId, int year, int duration, int mpaId, Collection<Integer> genreIds) {
+        lock.writeLock().lock();
+        try {
+            if (all.get(filmId)) {
+                clear(byMpa, mpas[filmId], filmId);
+                byGenre.values().forEach(films -> films.clear(filmId));
+            }
+            ensureCapacity(filmId);
+            all.set(filmId);
+            years[filmId] = (short) year;
+            durations[filmId] = duration;
+            mpas[filmId] = mpaId;
+            byMpa.computeIfAbsent(mpaId, m -> new BitSet()).set(filmId);
+            genreIds.forEach(genreId -> byGenre.computeIfAbsent(genreId, g -> new BitSet()).set(filmId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Selection select(Collection<Integer> genreIds, Collection<Integer> mpaIds,
+                            Integer yearFrom, Integer yearTo, Integer maxDuration) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) all.clone();
+            if (genreIds != null && !genreIds.isEmpty()) {
+                result.and(union(byGenre, genreIds));
+            }
+            if (mpaIds != null && !mpaIds.isEmpty()) {
+                result.and(union(byMpa, mpaIds));
+            }
+            if (yearFrom != null || yearTo != null || maxDuration != null) {
+                filterRanges(result, yearFrom == null ? Integer.MIN_VALUE : yearFrom,
+                        yearTo == null ? Integer.MAX_VALUE : yearTo,
+                        maxDuration == null ? Integer.MAX_VALUE : maxDuration);
+            }
+            return new Selection(result, counts(byGenre, result), counts(byMpa, result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static BitSet union(Map<Integer, BitSet> facet, Collection<Integer> values) {
+        BitSet union = new BitSet();
+        for (Integer value : values) {
+            BitSet films = facet.get(value);
+            if (films != null) union.or(films);
+        }
+        return union;
+    }
+
+    // снимает фильмы вне диапазонов, просматривая колонки только для фильмов выборки
+    private void filterRanges(BitSet selection, int yearFrom, int yearTo, int maxDuration) {
+        for (int id = selection.nextSetBit(0); id >= 0; id = selection.nextSetBit(id + 1)) {
+            int year = years[id];
+            if (year < yearFrom || year > yearTo || durations[id] > maxDuration) {
+                selection.clear(id);
+            }
+        }
+    }
+
+    private void ensureCapacity(int filmId) {
+        if (filmId < years.length) return;
+        int capacity = Math.max(filmId + 1, years.length + (years.length >> 1));
+        years = Arrays.copyOf(years, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        mpas = Arrays.copyOf(mpas, capacity);
+    }
+
+    // число фильмов выборки с каждым значением фасета
+    private static Map<Integer, Integer> counts(Map<Integer, BitSet> facet, BitSet selection) {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        facet.forEach((value, films) -> {
+            BitSet intersection = (BitSet) films.clone();
+            intersection.and(selection);
+            int count = intersection.cardinality();
+            if (count > 0) counts.put(value, count);
+        });
+        return counts;
+    }
+
+    private static void clear(Map<Integer, BitSet> facet, int value, int filmId) {
+        BitSet films = facet.get(value);
+        if (films != null) films.clear(filmId);
+    }
+
+    public record Selection(BitSet films, Map<Integer, Integer> genreCounts, Map<Integer, Integer> mpaCounts) {
+        // до limit id после курсора по возрастанию; id фильмов не больше Integer.MAX_VALUE, после него пусто
+        public List<Integer> idsAfter(Integer after, int limit) {
+            List<Integer> ids = new ArrayList<>(limit);
+            if (after != null && after == Integer.MAX_VALUE) {
+                return ids;
+            }
+            int id = films.nextSetBit(after == null ? 0 : after + 1);
+            while (id >= 0 && ids.size() < limit) {
+                ids.add(id);
+                id = id == Integer.MAX_VALUE ? -1 : films.nextSetBit(id + 1);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов. Для каждого терма хранится
+ * отсортированный список id фильмов, для каждого фильма - его термы, чтобы при обновлении
+ * снять старые вхождения без перебора словаря.
+ */
+public class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int POPULARITY_BITS = 20;
+    private static final int MAX_POPULARITY = (1 << POPULARITY_BITS) - 1;
+    private static final int MAX_SCORE = (1 << (Integer.SIZE - 1 - POPULARITY_BITS)) - 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final IntAdjacency namePostings = new IntAdjacency();
+    private final IntAdjacency descriptionPostings = new IntAdjacency();
+    private final IntAdjacency nameTerms = new IntAdjacency();
+    private final IntAdjacency descriptionTerms = new IntAdjacency();
+
+    public void put(int filmId, String name, String description) {
+        Set<String> newNameTerms = TextNormalizer.terms(name);
+        Set<String> newDescriptionTerms = TextNormalizer.terms(description);
+
+        lock.writeLock().lock();
+        try {
+            replace(filmId, newNameTerms, nameTerms, namePostings);
+            replace(filmId, newDescriptionTerms, descriptionTerms, descriptionPostings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Фильмы, в которых встречается хотя бы один терм запроса. Совпадение в названии весит больше,
+     * чем в описании; при равной релевантности выше фильм с большей популярностью, затем с меньшим id.
+     * Просматривается не больше maxPostings вхождений: термы идут от редких к частым, и если бюджет
+     * кончился, от самых частых термов учитывается только начало списка. Найденные фильмы не сортируются
+     * целиком: в куче держатся только limit лучших. Популярность выше {@value #MAX_POPULARITY} лайков
+     * считается равной, и такие фильмы упорядочиваются по id.
+     */
+    public int[] search(String query, int limit, int maxPostings, IntUnaryOperator popularity) {
+        Set<String> queryTerms = TextNormalizer.terms(query);
+        long[] votes;
+        lock.readLock().lock();
+        try {
+            List<Integer> ids = new ArrayList<>(queryTerms.size());
+            long total = 0;
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) continue;
+                ids.add(termId);
+                total += postings(termId);
+            }
+            ids.sort(Comparator.comparingInt(this::postings));
+            votes = new long[(int) Math.min(total, maxPostings)];
+            int filled = 0;
+            for (int termId : ids) {
+                filled = collect(namePostings, termId, NAME_WEIGHT, votes, filled);
+                filled = collect(descriptionPostings, termId, DESCRIPTION_WEIGHT, votes, filled);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(votes);
+        TopK top = new TopK(limit);
+        int i = 0;
+        while (i < votes.length) {
+            int filmId = (int) (votes[i] >>> 32);
+            int score = 0;
+            int j = i;
+            while (j < votes.length && (int) (votes[j] >>> 32) == filmId) {
+                score += (int) votes[j];
+                j++;
+            }
+            top.offer(rank(score, popularity.applyAsInt(filmId)), filmId);
+            i = j;
+        }
+        return top.ids();
+    }
+
+    // релевантность в старших битах веса, популярность - в младших; обе насыщаются, чтобы вес уместился в int
+    private static int rank(int score, int popularity) {
+        return Math.min(score, MAX_SCORE) << POPULARITY_BITS | Math.min(Math.max(popularity, 0), MAX_POPULARITY);
+    }
+
+    private void replace(int filmId, Set<String> terms, IntAdjacency filmTerms, IntAdjacency postings) {
+        for (int termId : filmTerms.copyOf(filmId)) {
+            filmTerms.remove(filmId, termId);
+            postings.remove(termId, filmId);
+        }
+        for (String term : terms) {
+            int termId = termIds.computeIfAbsent(term, t -> termIds.size());
+            filmTerms.add(filmId, termId);
+            postings.add(termId, filmId);
+        }
+    }
+
+    private int postings(int termId) {
+        return namePostings.size(termId) + descriptionPostings.size(termId);
+    }
+
+    private static int collect(IntAdjacency postings, int termId, int weight, long[] votes, int offset) {
+        int[] films = new int[Math.min(postings.size(termId), votes.length - offset)];
+        postings.copyTo(termId, films, 0, films.length);
+        for (int filmId : films) {
+            votes[offset++] = ((long) filmId << 32) | weight;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранится отсортированный массив id друзей.
+ * Индекс в массиве списков - id пользователя, поэтому память растёт линейно от числа пользователей и связей
+ * и не зависит от упаковки Integer. Пересечение двух списков считается слиянием без промежуточных коллекций.
+ */
+public class FriendGraph {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IntAdjacency friends = new IntAdjacency();
+
+    public void add(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            friends.add(userId, friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            friends.remove(userId, friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] friendsOf(int userId) {
+        lock.readLock().lock();
+        try {
+            return friends.copyOf(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        lock.readLock().lock();
+        try {
+            return friends.intersect(userId, otherId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int degree(int userId) {
+        lock.readLock().lock();
+        try {
+            return friends.size(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Друзья друзей, упорядоченные по числу общих друзей (по убыванию), затем по id.
+     * У каждого друга раскрывается не больше maxNeighbourDegree связей, а всего просматривается
+     * не больше maxVisited связей второго уровня - так время ответа ограничено и для «звёзд»,
+     * а друзья-«звёзды» всё равно дают кандидатов.
+     */
+    public int[] suggest(int userId, int limit, int maxNeighbourDegree, int maxVisited) {
+        int[] own;
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            own = friends.copyOf(userId);
+            long total = 0;
+            for (int friendId : own) {
+                total += Math.min(friends.size(friendId), maxNeighbourDegree);
+            }
+            candidates = new int[(int) Math.min(total, maxVisited)];
+            int filled = 0;
+            for (int friendId : own) {
+                if (filled == candidates.length) break;
+                filled = friends.copyTo(friendId, candidates, filled,
+                        Math.min(maxNeighbourDegree, candidates.length - filled));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // после сортировки одинаковые id стоят подряд, длина серии - число общих друзей
+        Arrays.parallelSort(candidates);
+        TopK top = new TopK(limit);
+        int i = 0;
+        while (i < candidates.length) {
+            int candidate = candidates[i];
+            int j = i;
+            while (j < candidates.length && candidates[j] == candidate) j++;
+            if (candidate != userId && Arrays.binarySearch(own, candidate) < 0) {
+                top.offer(j - i, candidate);
+            }
+            i = j;
+        }
+        return top.ids();
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            friends = new IntAdjacency();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return friends.edges();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return friends.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Списки смежности на примитивах: для каждого ключа - отсортированный массив int без повторов.
+ * Ключи плотные (id из БД), поэтому списки лежат в массиве по индексу ключа.
+ * Класс не потокобезопасен, синхронизацию обеспечивает владелец.
+ */
+public final class IntAdjacency {
+    static final int[] EMPTY = new int[0];
+
+    private int[][] lists = new int[16][];
+    private int[] sizes = new int[16];
+    private long edges;
+
+    public boolean add(int key, int value) {
+        ensureKey(key);
+        int[] values = lists[key] == null ? EMPTY : lists[key];
+        int size = sizes[key];
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) return false;
+        pos = -pos - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        lists[key] = values;
+        sizes[key] = size + 1;
+        edges++;
+        return true;
+    }
+
+    public boolean remove(int key, int value) {
+        if (size(key) == 0) return false;
+        int[] values = lists[key];
+        int size = sizes[key];
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) return false;
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        sizes[key] = size - 1;
+        edges--;
+        return true;
+    }
+
+    public int size(int key) {
+        return key < 0 || key >= sizes.length ? 0 : sizes[key];
+    }
+
+    public boolean contains(int key, int value) {
+        return size(key) > 0 && Arrays.binarySearch(lists[key], 0, sizes[key], value) >= 0;
+    }
+
+    public int[] copyOf(int key) {
+        return size(key) == 0 ? EMPTY : Arrays.copyOf(lists[key], sizes[key]);
+    }
+
+    // копирует первые count значений ключа в dst и возвращает новую позицию записи
+    public int copyTo(int key, int[] dst, int offset, int count) {
+        int take = Math.min(count, size(key));
+        if (take > 0) System.arraycopy(lists[key], 0, dst, offset, take);
+        return offset + take;
+    }
+
+    public int[] intersect(int key, int otherKey) {
+        if (size(key) == 0 || size(otherKey) == 0) return EMPTY;
+        return intersect(lists[key], sizes[key], lists[otherKey], sizes[otherKey]);
+    }
+
+    public long edges() {
+        return edges;
+    }
+
+    // оценка занимаемой памяти: заголовки и содержимое массивов без учёта выравнивания
+    public long estimatedBytes() {
+        long bytes = 16L + 4L * lists.length + 16L + 4L * sizes.length;
+        for (int[] values : lists) {
+            if (values != null) bytes += 16L + 4L * values.length;
+        }
+        return bytes;
+    }
+
+    public static int[] intersect(int[] a, int aSize, int[] b, int bSize) {
+        int[] result = new int[Math.min(aSize, bSize)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private void ensureKey(int key) {
+        if (key < 0) throw new IllegalArgumentException("Отрицательный id: " + key);
+        if (key < lists.length) return;
+        int capacity = Math.max(key + 1, lists.length + (lists.length >> 1));
+        lists = Arrays.copyOf(lists, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс лайков в обе стороны (пользователь → фильмы, фильм → пользователи) на отсортированных int[].
+ * Рекомендации строятся по соседям: пользователи, у которых больше всего общих лайков с данным,
+ * «голосуют» за свои фильмы весом, равным размеру пересечения.
+ */
+public class LikesIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IntAdjacency userFilms = new IntAdjacency();
+    private IntAdjacency filmUsers = new IntAdjacency();
+
+    public void add(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (userFilms.add(userId, filmId)) {
+                filmUsers.add(filmId, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (userFilms.remove(userId, filmId)) {
+                filmUsers.remove(filmId, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            userFilms = new IntAdjacency();
+            filmUsers = new IntAdjacency();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long likeCount() {
+        lock.readLock().lock();
+        try {
+            return userFilms.edges();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return userFilms.estimatedBytes() + filmUsers.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Фильмы, которые пользователь ещё не лайкал, по убыванию суммарного веса соседей, затем по id.
+     * Фильмы с числом лайков больше maxFilmDegree не используются для поиска соседей (почти не несут сигнала),
+     * а на каждом шаге просматривается не больше maxVisited связей.
+     */
+    public int[] recommend(int userId, int limit, int neighbours, int maxFilmDegree, int maxVisited) {
+        int[] own;
+        int[] coLikers;
+        lock.readLock().lock();
+        try {
+            own = userFilms.copyOf(userId);
+            long total = 0;
+            for (int filmId : own) {
+                int degree = filmUsers.size(filmId);
+                if (degree <= maxFilmDegree) total += degree;
+            }
+            coLikers = new int[(int) Math.min(total, maxVisited)];
+            int filled = 0;
+            for (int filmId : own) {
+                if (filled == coLikers.length) break;
+                if (filmUsers.size(filmId) > maxFilmDegree) continue;
+                filled = filmUsers.copyTo(filmId, coLikers, filled, coLikers.length - filled);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // соседи: длина серии одинаковых id после сортировки - число общих лайков
+        Arrays.parallelSort(coLikers);
+        TopK similar = new TopK(neighbours);
+        int i = 0;
+        while (i < coLikers.length) {
+            int candidate = coLikers[i];
+            int j = i;
+            while (j < coLikers.length && coLikers[j] == candidate) j++;
+            if (candidate != userId) similar.offer(j - i, candidate);
+            i = j;
+        }
+        if (similar.isEmpty()) return IntAdjacency.EMPTY;
+
+        // голоса соседей: старшие 32 бита - фильм, младшие - вес соседа
+        long[] votes;
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int k = 0; k < similar.size(); k++) {
+                total += userFilms.size(similar.idAt(k));
+            }
+            votes = new long[(int) Math.min(total, maxVisited)];
+            int filled = 0;
+            for (int n = 0; n < similar.size(); n++) {
+                int weight = similar.weightAt(n);
+                int[] films = userFilms.copyOf(similar.idAt(n));
+                for (int k = 0; k < films.length && filled < votes.length; k++) {
+                    if (Arrays.binarySearch(own, films[k]) < 0) {
+                        votes[filled++] = ((long) films[k] << 32) | weight;
+                    }
+                }
+            }
+            votes = filled == votes.length ? votes : Arrays.copyOf(votes, filled);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.parallelSort(votes);
+        TopK top = new TopK(limit);
+        i = 0;
+        while (i < votes.length) {
+            int filmId = (int) (votes[i] >>> 32);
+            int score = 0;
+            int j = i;
+            while (j < votes.length && (int) (votes[j] >>> 32) == filmId) {
+                score += (int) votes[j];
+                j++;
+            }
+            top.offer(score, filmId);
+            i = j;
+        }
+        return top.ids();
+    }
+}
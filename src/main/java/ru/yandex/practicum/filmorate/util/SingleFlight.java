@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых загрузок: первый вызов с ключом выполняет загрузку, а вызовы,
+ * пришедшие до её окончания, ждут и получают тот же результат или то же исключение. Число присоединившихся
+ * к каждой загрузке пишется в {@value #METRIC} с тегом name. Результат общий для всех вызвавших - менять его нельзя.
+ */
+public class SingleFlight<K, V> {
+    public static final String METRIC = "filmorate.singleflight.shared";
+
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final DistributionSummary shared;
+
+    public SingleFlight(String name) {
+        this.shared = DistributionSummary.builder(METRIC)
+                .description("Вызовы, получившие результат чужой загрузки")
+                .tag("name", name)
+                .register(Metrics.globalRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        Flight<V> own = new Flight<>();
+        Flight<V> flight = flights.putIfAbsent(key, own);
+        if (flight != null) {
+            flight.joined.incrementAndGet();
+            return flight.await();
+        }
+        try {
+            V value = loader.get();
+            own.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, own);
+            shared.record(own.joined.get());
+        }
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger joined = new AtomicInteger();
+
+        private V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
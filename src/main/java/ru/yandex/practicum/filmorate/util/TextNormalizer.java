@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает текст на термы для поиска: нижний регистр, ё → е, слова из букв и цифр,
+ * у русских слов отрезается типичное окончание («фильмы», «фильма», «фильмов» → «фильм»).
+ */
+public final class TextNormalizer {
+    private static final Locale RU = Locale.forLanguageTag("ru");
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MIN_STEM_LENGTH = 3;
+    // сначала длинные окончания, чтобы «-ами» не превращалось в «-ам» + «и»
+    private static final String[] ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией",
+            "ия", "ие", "ии", "ию", "ий", "ый", "ой", "ей", "ая", "яя", "ое", "ее", "ые", "ую", "юю",
+            "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев", "ью",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private TextNormalizer() {
+    }
+
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) return terms;
+
+        String lower = text.toLowerCase(RU).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = lower.substring(start, i);
+                if (word.length() >= MIN_TERM_LENGTH) terms.add(stem(word));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String word) {
+        if (!isCyrillic(word)) return word;
+        for (String ending : ENDINGS) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    private static boolean isCyrillic(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.UnicodeBlock.of(word.charAt(i)) == Character.UnicodeBlock.CYRILLIC) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Отбор k лучших по весу в куче на массиве long: пара (вес, id) упакована так, что больший вес и меньший id
+ * сравниваются как большее число, поэтому куча не создаёт объектов-пар, не упаковывает значения в Long
+ * и не нуждается в компараторе. В корне кучи - худший из отобранных.
+ */
+final class TopK {
+    private final long[] heap;
+    private int size;
+
+    TopK(int capacity) {
+        this.heap = new long[capacity];
+    }
+
+    void offer(int weight, int id) {
+        long packed = ((long) weight << 32) | (Integer.MAX_VALUE - id);
+        if (size < heap.length) {
+            heap[size] = packed;
+            siftUp(size++);
+        } else if (size > 0 && packed > heap[0]) {
+            heap[0] = packed;
+            siftDown(0);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // отобранные в порядке кучи, без сортировки
+    int idAt(int index) {
+        return Integer.MAX_VALUE - (int) (heap[index] & 0xFFFFFFFFL);
+    }
+
+    int weightAt(int index) {
+        return (int) (heap[index] >>> 32);
+    }
+
+    // id по убыванию веса, при равном весе - по возрастанию id
+    int[] ids() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        int[] result = new int[size];
+        for (int k = 0; k < size; k++) {
+            result[k] = Integer.MAX_VALUE - (int) (sorted[size - 1 - k] & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index) {
+        long value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (value <= heap[child]) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
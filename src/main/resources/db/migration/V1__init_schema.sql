@@ -0,0 +1,72 @@
+CREATE TABLE IF NOT EXISTS users (
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email       VARCHAR(255) NOT NULL,
+    login       VARCHAR(255) NOT NULL,
+    name        VARCHAR(255),
+    birthday    DATE NOT NULL,
+    CONSTRAINT uq_users_email UNIQUE (email),
+    CONSTRAINT uq_users_login UNIQUE (login)
+    );
+
+CREATE TABLE IF NOT EXISTS mpa_ratings (
+    id      INTEGER PRIMARY KEY,
+    name    VARCHAR(50) NOT NULL
+    );
+
+CREATE TABLE IF NOT EXISTS genres (
+    id      INTEGER PRIMARY KEY,
+    name    VARCHAR(50) NOT NULL
+    );
+
+CREATE TABLE IF NOT EXISTS films (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    description     VARCHAR(200) NOT NULL,
+    release_date    DATE NOT NULL,
+    duration        INTEGER NOT NULL,
+    mpa_id          INTEGER NOT NULL,
+    likes_count     INTEGER DEFAULT 0 NOT NULL,
+    CONSTRAINT fk_films_mpa FOREIGN KEY (mpa_id) REFERENCES mpa_ratings(id)
+    );
+
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS film_genres (
+    film_id     INTEGER NOT NULL,
+    genre_id    INTEGER NOT NULL,
+    PRIMARY KEY (film_id, genre_id),
+    CONSTRAINT fk_film_genres_film FOREIGN KEY (film_id) REFERENCES films(id),
+    CONSTRAINT fk_film_genres_genre FOREIGN KEY (genre_id) REFERENCES genres(id)
+    );
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id     INTEGER NOT NULL,
+    user_id     INTEGER NOT NULL,
+    PRIMARY KEY (film_id, user_id),
+    CONSTRAINT fk_film_likes_film FOREIGN KEY (film_id) REFERENCES films(id),
+    CONSTRAINT fk_film_likes_user FOREIGN KEY (user_id) REFERENCES users(id)
+    );
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id     INTEGER NOT NULL,
+    friend_id   INTEGER NOT NULL,
+    PRIMARY KEY (user_id, friend_id),
+    CONSTRAINT fk_friendship_user FOREIGN KEY (user_id) REFERENCES users(id),
+    CONSTRAINT fk_friendship_friend FOREIGN KEY (friend_id) REFERENCES users(id)
+    );
+MERGE INTO mpa_ratings (id, name)
+    VALUES (1, 'G'),
+           (2, 'PG'),
+           (3, 'PG-13'),
+           (4, 'R'),
+           (5, 'NC-17');
+
+MERGE INTO genres (id, name) KEY (id)
+    VALUES (1, 'Комедия'),
+           (2, 'Драма'),
+           (3, 'Мультфильм'),
+           (4, 'Триллер'),
+           (5, 'Документальный'),
+           (6, 'Боевик');
\ No newline at end of file
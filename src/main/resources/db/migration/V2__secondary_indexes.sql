@@ -0,0 +1,4 @@
+-- первичные ключи покрывают поиск только по первой колонке, обратные связи нужны отдельно
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres (genre_id, film_id);
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.BulkheadDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkheadDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Metrics.globalRegistry.add(registry);
+        when(target.getConnection()).thenReturn(connection);
+    }
+
+    @AfterEach
+    void removeRegistry() {
+        Metrics.globalRegistry.remove(registry);
+    }
+
+    @Test
+    void connectionBeyondPermitsIsRejectedAfterTimeout() throws SQLException {
+        BulkheadDataSource dataSource = new BulkheadDataSource(target, 1, Duration.ofMillis(20));
+
+        Connection first = dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(registry.get(BulkheadDataSource.METRIC + ".rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get(BulkheadDataSource.METRIC + ".wait").timer().count()).isEqualTo(2);
+
+        first.close();
+        dataSource.getConnection().close();
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void repeatedCloseReleasesPermitOnce() throws SQLException {
+        BulkheadDataSource dataSource = new BulkheadDataSource(target, 1, Duration.ofMillis(20));
+
+        Connection first = dataSource.getConnection();
+        first.close();
+        first.close();
+        Connection second = dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        second.close();
+    }
+
+    @Test
+    void failedConnectionReturnsPermit() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("db down")).thenReturn(connection);
+        BulkheadDataSource dataSource = new BulkheadDataSource(target, 1, Duration.ofMillis(20));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("db down");
+
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+}
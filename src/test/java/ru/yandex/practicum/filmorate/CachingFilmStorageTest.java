@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingFilmStorageTest {
+
+    private final FilmStorage delegate = mock(FilmStorage.class);
+
+    private Film film(int id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Film " + id);
+        film.setLikesCount(0);
+        return film;
+    }
+
+    @Test
+    void repeatedLookupIsServedFromCache() {
+        when(delegate.findById(1, FilmProjection.COUNTS)).thenReturn(Optional.of(film(1)));
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10);
+
+        Film first = storage.findById(1, FilmProjection.COUNTS).orElseThrow();
+        first.setName("changed by caller");
+        Film second = storage.findById(1, FilmProjection.COUNTS).orElseThrow();
+
+        assertThat(second.getName()).isEqualTo("Film 1");
+        verify(delegate, times(1)).findById(1, FilmProjection.COUNTS);
+        assertThat(storage.getHits()).isEqualTo(1);
+        assertThat(storage.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        when(delegate.findById(anyInt(), any())).thenAnswer(inv -> Optional.of(film(inv.getArgument(0))));
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 2);
+
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(2, FilmProjection.COUNTS);
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(3, FilmProjection.COUNTS);
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(2, FilmProjection.COUNTS);
+
+        assertThat(storage.getEvictions()).isEqualTo(2);
+        assertThat(storage.getSize()).isEqualTo(2);
+        verify(delegate, times(2)).findById(2, FilmProjection.COUNTS);
+        verify(delegate, times(1)).findById(1, FilmProjection.COUNTS);
+    }
+
+    @Test
+    void writesInvalidateOnlyTouchedFilm() {
+        when(delegate.findById(anyInt(), any())).thenAnswer(inv -> Optional.of(film(inv.getArgument(0))));
+        when(delegate.applyLikes(anyList())).thenReturn(Map.of());
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10);
+        storage.findById(1, FilmProjection.FULL);
+        storage.findById(2, FilmProjection.FULL);
+        storage.findById(3, FilmProjection.FULL);
+
+        storage.addLike(1, 7);
+        storage.update(film(2));
+        storage.applyLikes(List.of(new LikeChange(3, 7, false)));
+        storage.findById(1, FilmProjection.FULL);
+        storage.findById(2, FilmProjection.FULL);
+        storage.findById(3, FilmProjection.FULL);
+        storage.findById(1, FilmProjection.FULL);
+
+        verify(delegate, times(2)).findById(1, FilmProjection.FULL);
+        verify(delegate, times(2)).findById(2, FilmProjection.FULL);
+        verify(delegate, times(2)).findById(3, FilmProjection.FULL);
+        assertThat(storage.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void findByIdsLoadsOnlyMissingFilms() {
+        when(delegate.findById(1, FilmProjection.COUNTS)).thenReturn(Optional.of(film(1)));
+        when(delegate.findByIds(List.of(3, 2), FilmProjection.COUNTS)).thenReturn(List.of(film(3), film(2)));
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10);
+        storage.findById(1, FilmProjection.COUNTS);
+
+        assertThat(storage.findByIds(List.of(3, 1, 2), FilmProjection.COUNTS))
+                .extracting(Film::getId)
+                .containsExactly(3, 1, 2);
+        assertThat(storage.findByIds(List.of(2, 3), FilmProjection.COUNTS)).hasSize(2);
+        verify(delegate, times(1)).findByIds(anyList(), any());
+    }
+
+    @Test
+    void loadOverlappingInvalidationIsNotCached() {
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10);
+        when(delegate.findById(1, FilmProjection.COUNTS)).thenAnswer(inv -> {
+            // изменение фильма, пока его загрузка ещё не вернулась
+            storage.update(film(1));
+            return Optional.of(film(1));
+        }).thenReturn(Optional.of(film(1)));
+
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(1, FilmProjection.COUNTS);
+
+        verify(delegate, times(2)).findById(1, FilmProjection.COUNTS);
+        assertThat(storage.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void statisticsAreExportedAsMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        when(delegate.findById(1, FilmProjection.COUNTS)).thenReturn(Optional.of(film(1)));
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 10);
+        storage.bindTo(registry);
+
+        storage.findById(1, FilmProjection.COUNTS);
+        storage.findById(1, FilmProjection.COUNTS);
+
+        assertThat(registry.get("cache.gets").tags("cache", "films", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "films", "result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.size").tag("cache", "films").gauge().value()).isEqualTo(1);
+    }
+}
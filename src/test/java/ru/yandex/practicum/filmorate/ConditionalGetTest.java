@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipChangedEvent;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Чтение, выполненное посреди записи - после коммита и всех слушателей событий, но до возврата из хранилища, -
+ * не должно получить новый ETag вместе со старыми данными: иначе клиент дальше получал бы 304 на устаревший ответ.
+ */
+@SpringBootTest(properties = "filmorate.friendship.index.enabled=true")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ReadDuringWrite readDuringWrite;
+    @Autowired
+    private EntityVersions versions;
+
+    @Test
+    void filmReadDuringUpdateIsNotServedStale() throws Exception {
+        Film film = filmService.create(buildFilm("Before"));
+        String url = "/films/" + film.getId();
+        read(url);
+
+        readDuringWrite.arm(url);
+        Film update = new Film();
+        update.setId(film.getId());
+        update.setName("After");
+        filmService.update(update);
+
+        assertNoStaleNotModified(url);
+        assertThat(filmService.getById(film.getId(), FilmProjection.COUNTS).getName()).isEqualTo("After");
+    }
+
+    @Test
+    void popularReadDuringLikeIsNotServedStale() throws Exception {
+        filmService.create(buildFilm("First"));
+        Film second = filmService.create(buildFilm("Second"));
+        User user = userService.create(buildUser("liker"));
+        String url = "/films/popular?count=1000";
+        read(url);
+
+        readDuringWrite.arm(url);
+        filmService.addLike(second.getId(), user.getId());
+
+        assertNoStaleNotModified(url);
+        assertThat(filmService.getPopular(1000, FilmProjection.COUNTS)).first()
+                .extracting(Film::getId).isEqualTo(second.getId());
+    }
+
+    @Test
+    void friendsReadDuringAddFriendIsNotServedStale() throws Exception {
+        User user = userService.create(buildUser("user"));
+        User friend = userService.create(buildUser("friend"));
+        String url = "/users/" + user.getId() + "/friends";
+        read(url);
+
+        readDuringWrite.arm(url);
+        userService.addFriend(user.getId(), friend.getId());
+
+        assertNoStaleNotModified(url);
+    }
+
+    @Test
+    void missingEntityWithMatchingTagIsNotFound() throws Exception {
+        int missing = 999_999;
+
+        assertThat(mockMvc.perform(get("/films/" + missing)
+                        .header(HttpHeaders.IF_NONE_MATCH, versions.film(missing)))
+                .andReturn().getResponse().getStatus()).isEqualTo(404);
+        assertThat(mockMvc.perform(get("/users/" + missing + "/friends")
+                        .header(HttpHeaders.IF_NONE_MATCH, versions.friends(missing)))
+                .andReturn().getResponse().getStatus()).isEqualTo(404);
+    }
+
+    // ответ на If-None-Match с ETag, полученным посреди записи: 304 допустим, только если тело тогда было актуальным
+    private void assertNoStaleNotModified(String url) throws Exception {
+        Snapshot window = readDuringWrite.snapshot();
+        assertThat(window).as("чтение посреди записи").isNotNull();
+
+        Snapshot current = read(url);
+        MockHttpServletResponse conditional = mockMvc.perform(get(url)
+                        .header(HttpHeaders.IF_NONE_MATCH, window.etag()))
+                .andReturn().getResponse();
+        if (conditional.getStatus() == 304) {
+            assertThat(window.body()).isEqualTo(current.body());
+        } else {
+            assertThat(conditional.getStatus()).isEqualTo(200);
+        }
+    }
+
+    private Snapshot read(String url) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get(url)).andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        return new Snapshot(response.getHeader(HttpHeaders.ETAG), response.getContentAsString());
+    }
+
+    private static Film buildFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+
+    private static User buildUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private record Snapshot(String etag, String body) {
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ReadDuringWrite readDuringWrite() {
+            return new ReadDuringWrite();
+        }
+    }
+
+    // выполняет чтение из другого потока, пока поток записи стоит в последнем слушателе события
+    static class ReadDuringWrite {
+        @Autowired
+        private MockMvc mockMvc;
+
+        private volatile String url;
+        private volatile Snapshot snapshot;
+
+        void arm(String url) {
+            this.snapshot = null;
+            this.url = url;
+        }
+
+        Snapshot snapshot() {
+            return snapshot;
+        }
+
+        @Order(Ordered.LOWEST_PRECEDENCE)
+        @TransactionalEventListener(classes = {FilmSavedEvent.class, FilmLikesChangedEvent.class,
+                FriendshipChangedEvent.class}, fallbackExecution = true)
+        public void onChange() {
+            String armed = url;
+            if (armed == null) {
+                return;
+            }
+            url = null;
+            snapshot = CompletableFuture.supplyAsync(() -> {
+                try {
+                    MockHttpServletResponse response = mockMvc.perform(get(armed)).andReturn().getResponse();
+                    return new Snapshot(response.getHeader(HttpHeaders.ETAG), response.getContentAsString());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).join();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// генератор сам управляет транзакцией, поэтому тесты идут без общей откатываемой транзакции
+@JdbcTest
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class DatasetGeneratorTest {
+    private static final DatasetSpec SPEC = new DatasetSpec(200, 300, 2000, 10, 7);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM film_likes");
+        jdbcTemplate.update("DELETE FROM film_genres");
+        jdbcTemplate.update("DELETE FROM friendships");
+        jdbcTemplate.update("DELETE FROM films");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void testGeneratesRequestedVolumesWithConsistentCounters() {
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        assertThat(count("SELECT COUNT(*) FROM users")).isEqualTo(200);
+        assertThat(count("SELECT COUNT(*) FROM films")).isEqualTo(300);
+        assertThat(count("SELECT COUNT(*) FROM film_likes")).isEqualTo(2000);
+        assertThat(count("SELECT COUNT(*) FROM friendships")).isGreaterThan(200 * 10 / 2);
+        assertThat(count("SELECT COUNT(*) FROM friendships WHERE user_id = friend_id")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM films f "
+                + "WHERE likes_count <> (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM film_likes fl WHERE NOT EXISTS "
+                + "(SELECT 1 FROM users u WHERE u.id = fl.user_id)")).isZero();
+    }
+
+    @Test
+    void testSameSeedProducesSameRows() {
+        DatasetGenerator generator = new DatasetGenerator(jdbcTemplate);
+        generator.generate(SPEC);
+        List<String> first = snapshot();
+
+        clean();
+        generator.generate(SPEC);
+        assertThat(snapshot()).isEqualTo(first);
+
+        clean();
+        generator.generate(new DatasetSpec(200, 300, 2000, 10, 8));
+        assertThat(snapshot()).isNotEqualTo(first);
+    }
+
+    @Test
+    void testLikesAndFriendshipsAreSkewed() {
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        // у самого популярного фильма и самого популярного пользователя на порядок больше среднего
+        assertThat(count("SELECT MAX(likes_count) FROM films")).isGreaterThan(10 * 2000 / 300);
+        int friendships = count("SELECT COUNT(*) FROM friendships");
+        assertThat(count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM friendships GROUP BY friend_id)"))
+                .isGreaterThan(5 * friendships / 200);
+    }
+
+    @Test
+    void testGenerateIfEmptySkipsExistingData() {
+        DatasetGenerator generator = new DatasetGenerator(jdbcTemplate);
+
+        assertThat(generator.generateIfEmpty(SPEC)).isTrue();
+        assertThat(generator.generateIfEmpty(SPEC)).isFalse();
+        assertThat(count("SELECT COUNT(*) FROM films")).isEqualTo(300);
+    }
+
+    private List<String> snapshot() {
+        return jdbcTemplate.queryForList("""
+                SELECT CONCAT('u', id, email, birthday) FROM users
+                UNION ALL SELECT CONCAT('f', id, name, description, release_date, duration, mpa_id) FROM films
+                UNION ALL SELECT CONCAT('g', film_id, ':', genre_id) FROM film_genres
+                UNION ALL SELECT CONCAT('l', film_id, ':', user_id) FROM film_likes
+                UNION ALL SELECT CONCAT('s', user_id, ':', friend_id) FROM friendships
+                ORDER BY 1
+                """, String.class);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
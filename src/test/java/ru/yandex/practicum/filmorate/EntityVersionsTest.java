@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesChangedEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmSavedEvent;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.storage.user.UserUpdatedEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityVersionsTest {
+
+    private final PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+    private final EntityVersions versions = new EntityVersions(leaderboard);
+
+    @Test
+    void filmChangesAffectOnlyThatFilmAndPopular() {
+        String film = versions.film(1);
+        String other = versions.film(2);
+        String popular = versions.popular();
+
+        versions.onLikesChanged(new FilmLikesChangedEvent(List.of(1)));
+
+        assertThat(versions.film(1)).isNotEqualTo(film);
+        assertThat(versions.film(2)).isEqualTo(other);
+        assertThat(versions.popular()).isNotEqualTo(popular);
+
+        String liked = versions.film(1);
+        versions.onFilmSaved(new FilmSavedEvent(1, "Film", "Description", LocalDate.of(2000, 1, 1), 100, 1,
+                List.of()));
+        assertThat(versions.film(1)).isNotEqualTo(liked);
+    }
+
+    @Test
+    void friendsListChangesWithFriendshipAndAnyUserUpdate() {
+        String friends = versions.friends(1);
+        String other = versions.friends(2);
+
+        versions.onFriendshipChanged(new FriendshipChangedEvent(1));
+
+        assertThat(versions.friends(1)).isNotEqualTo(friends);
+        assertThat(versions.friends(2)).isEqualTo(other);
+
+        versions.onUserUpdated(new UserUpdatedEvent(3));
+        assertThat(versions.friends(2)).isNotEqualTo(other);
+    }
+
+    @Test
+    void popularChangesOnlyWhenRankingChanges() {
+        leaderboard.reload(() -> Map.of(1, 3, 2, 1));
+        String popular = versions.popular();
+
+        leaderboard.reload(() -> Map.of(1, 3, 2, 1));
+        assertThat(versions.popular()).isEqualTo(popular);
+
+        leaderboard.reload(() -> Map.of(1, 3, 2, 5));
+        assertThat(versions.popular()).isNotEqualTo(popular);
+
+        String resynced = versions.popular();
+        leaderboard.changeLikes(1, 1);
+        assertThat(versions.popular()).isNotEqualTo(resynced);
+    }
+
+    @Test
+    void tagsAreQuotedEntityTags() {
+        assertThat(versions.film(1)).startsWith("\"").endsWith("\"");
+        assertThat(versions.popular()).isNotEqualTo(versions.film(0));
+    }
+}
@@ -10,24 +10,34 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeChange;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @JdbcTest
 @AutoConfigureTestDatabase
-@Import(FilmDbStorage.class)
+@Import({FilmDbStorage.class, MpaDbStorage.class, GenreDbStorage.class})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class FilmDbStorageTest {
 
     private final FilmDbStorage filmStorage;
+    private final MpaDbStorage mpaStorage;
     private final JdbcTemplate jdbcTemplate; // <-- вот это нужно для createUser()
 
     private Film buildFilm() {
@@ -37,21 +47,23 @@ class FilmDbStorageTest {
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
 
-        Mpa mpa = new Mpa();
-        mpa.setId(1); // есть в data.sql
-        film.setMpa(mpa);
+        film.setMpa(new Mpa(1, null)); // есть в data.sql
 
         return film;
     }
 
     private Integer createUser() {
+        return createUser("user");
+    }
+
+    private Integer createUser(String login) {
         String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
-            ps.setString(1, "user@mail.ru");
-            ps.setString(2, "user");
+            ps.setString(1, login + "@mail.ru");
+            ps.setString(2, login);
             ps.setString(3, "User");
             ps.setDate(4, Date.valueOf(LocalDate.of(2000, 1, 1)));
             return ps;
@@ -66,7 +78,7 @@ class FilmDbStorageTest {
 
         Film created = filmStorage.create(film);
 
-        var found = filmStorage.findById(created.getId());
+        var found = filmStorage.findById(created.getId(), FilmProjection.FULL);
 
         assertThat(found)
                 .isPresent()
@@ -77,6 +89,20 @@ class FilmDbStorageTest {
                 );
     }
 
+    @Test
+    void testRowMappingUsesSharedReferenceData() {
+        Film created = filmStorage.create(buildFilm());
+
+        var found = filmStorage.findById(created.getId(), FilmProjection.COUNTS);
+
+        assertThat(found)
+                .isPresent()
+                .hasValueSatisfying(f -> {
+                    assertThat(f.getMpa().getName()).isEqualTo("G");
+                    assertThat(f.getMpa()).isSameAs(mpaStorage.findById(1).orElseThrow());
+                });
+    }
+
     @Test
     void testUpdateFilm() {
         Film film = buildFilm();
@@ -88,7 +114,7 @@ class FilmDbStorageTest {
 
         filmStorage.update(created);
 
-        var found = filmStorage.findById(created.getId());
+        var found = filmStorage.findById(created.getId(), FilmProjection.FULL);
 
         assertThat(found)
                 .isPresent()
@@ -110,13 +136,59 @@ class FilmDbStorageTest {
         film2.setName("Film 2");
         Film created2 = filmStorage.create(film2);
 
-        Collection<Film> all = filmStorage.findAll();
+        Collection<Film> all = filmStorage.findAll(FilmProjection.FULL);
 
         assertThat(all)
                 .extracting(Film::getId)
                 .contains(created1.getId(), created2.getId());
     }
 
+    @Test
+    void testUpdateAppliesGenreDiff() {
+        Film film = buildFilm();
+        film.setGenres(new LinkedHashSet<>(List.of(genre(1), genre(2))));
+        Film created = filmStorage.create(film);
+
+        created.setGenres(new LinkedHashSet<>(List.of(genre(2), genre(3))));
+        filmStorage.update(created);
+
+        assertThat(filmStorage.findById(created.getId(), FilmProjection.COUNTS))
+                .isPresent()
+                .hasValueSatisfying(f -> assertThat(f.getGenres())
+                        .extracting(Genre::getId)
+                        .containsExactly(2, 3));
+
+        created.setGenres(new LinkedHashSet<>());
+        filmStorage.update(created);
+
+        assertThat(filmStorage.findById(created.getId(), FilmProjection.COUNTS))
+                .isPresent()
+                .hasValueSatisfying(f -> assertThat(f.getGenres()).isEmpty());
+    }
+
+    @Test
+    void testCreateAllReturnsIdsInInputOrder() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Film film = buildFilm();
+            film.setName("Batch film " + i);
+            film.setGenres(new LinkedHashSet<>(i % 2 == 0 ? List.of(genre(1)) : List.of(genre(2), genre(3))));
+            films.add(film);
+        }
+
+        List<Film> created = filmStorage.createAll(films);
+
+        assertThat(created).hasSize(150);
+        for (int i = 0; i < created.size(); i++) {
+            Film stored = filmStorage.findById(created.get(i).getId(), FilmProjection.FULL).orElseThrow();
+            assertThat(stored.getName()).isEqualTo("Batch film " + i);
+            assertThat(stored.getGenres()).extracting(Genre::getId)
+                    .containsExactlyElementsOf(i % 2 == 0 ? List.of(1) : List.of(2, 3));
+            assertThat(stored.getLikesCount()).isZero();
+        }
+        assertThat(created).extracting(Film::getId).isSorted();
+    }
+
     @Test
     void testExists() {
         Film film = buildFilm();
@@ -134,7 +206,7 @@ class FilmDbStorageTest {
 
         filmStorage.addLike(createdFilm.getId(), userId);
 
-        var found = filmStorage.findById(createdFilm.getId());
+        var found = filmStorage.findById(createdFilm.getId(), FilmProjection.FULL);
 
         assertThat(found)
                 .isPresent()
@@ -153,7 +225,7 @@ class FilmDbStorageTest {
         filmStorage.addLike(createdFilm.getId(), userId);
         filmStorage.removeLike(createdFilm.getId(), userId);
 
-        var found = filmStorage.findById(createdFilm.getId());
+        var found = filmStorage.findById(createdFilm.getId(), FilmProjection.FULL);
 
         assertThat(found)
                 .isPresent()
@@ -162,4 +234,166 @@ class FilmDbStorageTest {
                     assertThat(likes).doesNotContain(userId);
                 });
     }
+
+    @Test
+    void testAddLikeTwiceCountsOnce() {
+        Film createdFilm = filmStorage.create(buildFilm());
+        Integer userId = createUser();
+
+        filmStorage.addLike(createdFilm.getId(), userId);
+        filmStorage.addLike(createdFilm.getId(), userId);
+
+        assertThat(likesCount(createdFilm.getId())).isEqualTo(1);
+
+        filmStorage.removeLike(createdFilm.getId(), userId);
+        filmStorage.removeLike(createdFilm.getId(), userId);
+
+        assertThat(likesCount(createdFilm.getId())).isZero();
+    }
+
+    @Test
+    void testApplyLikesCountsOnlyEffectiveChanges() {
+        Film first = filmStorage.create(buildFilm());
+        Film second = filmStorage.create(buildFilm());
+        Integer alice = createUser("alice");
+        Integer bob = createUser("bob");
+        filmStorage.addLike(second.getId(), alice);
+
+        Map<Integer, Integer> deltas = filmStorage.applyLikes(List.of(
+                new LikeChange(first.getId(), alice, true),
+                new LikeChange(first.getId(), bob, true),
+                new LikeChange(second.getId(), alice, true),
+                new LikeChange(second.getId(), bob, false)));
+
+        assertThat(deltas).containsExactlyEntriesOf(Map.of(first.getId(), 2));
+        assertThat(likesCount(first.getId())).isEqualTo(2);
+        assertThat(likesCount(second.getId())).isEqualTo(1);
+
+        deltas = filmStorage.applyLikes(List.of(new LikeChange(second.getId(), alice, false)));
+
+        assertThat(deltas).containsExactlyEntriesOf(Map.of(second.getId(), -1));
+        assertThat(likesCount(second.getId())).isZero();
+    }
+
+    @Test
+    void testFindMostPopularOrdersByLikesCount() {
+        Film first = filmStorage.create(buildFilm());
+        Film second = filmStorage.create(buildFilm());
+        Film third = filmStorage.create(buildFilm());
+        Integer user1 = createUser("user1");
+        Integer user2 = createUser("user2");
+
+        filmStorage.addLike(second.getId(), user1);
+        filmStorage.addLike(second.getId(), user2);
+        filmStorage.addLike(third.getId(), user1);
+
+        Collection<Film> popular = filmStorage.findMostPopular(3, FilmProjection.FULL);
+
+        assertThat(popular)
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), third.getId(), first.getId());
+    }
+
+    @Test
+    void testFindByIdsKeepsRequestedOrder() {
+        Film first = filmStorage.create(buildFilm());
+        Film second = filmStorage.create(buildFilm());
+
+        Collection<Film> films = filmStorage.findByIds(List.of(second.getId(), 9999, first.getId()),
+                FilmProjection.FULL);
+
+        assertThat(films)
+                .extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    void testFindPageUsesIdCursor() {
+        Film first = filmStorage.create(buildFilm());
+        Film second = filmStorage.create(buildFilm());
+        Film third = filmStorage.create(buildFilm());
+
+        assertThat(filmStorage.findPage(0, 2, FilmProjection.FULL))
+                .extracting(Film::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(filmStorage.findPage(second.getId(), 2, FilmProjection.FULL))
+                .extracting(Film::getId)
+                .containsExactly(third.getId());
+    }
+
+    @Test
+    void testExportAllMergesGenresAndLikes() {
+        Film withGenres = buildFilm();
+        withGenres.setGenres(new LinkedHashSet<>(List.of(genre(2), genre(1))));
+        Film first = filmStorage.create(withGenres);
+        Film second = filmStorage.create(buildFilm());
+        Integer userId = createUser();
+        filmStorage.addLike(second.getId(), userId);
+
+        List<Film> exported = new ArrayList<>();
+        filmStorage.exportAll(FilmProjection.FULL, exported::add);
+
+        assertThat(exported)
+                .extracting(Film::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(exported.get(0).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1, 2);
+        assertThat(exported.get(0).getLikes()).isEmpty();
+        assertThat(exported.get(1).getGenres()).isEmpty();
+        assertThat(exported.get(1).getLikes()).containsExactly(userId);
+    }
+
+    @Test
+    void testExportAllWithCountsSkipsLikes() {
+        Film film = filmStorage.create(buildFilm());
+        filmStorage.addLike(film.getId(), createUser());
+
+        List<Film> exported = new ArrayList<>();
+        filmStorage.exportAll(FilmProjection.COUNTS, exported::add);
+
+        assertThat(exported).singleElement().satisfies(f -> {
+            assertThat(f.getLikes()).isNull();
+            assertThat(f.getLikesCount()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testCountsProjectionSkipsLikes() {
+        Film createdFilm = filmStorage.create(buildFilm());
+        Integer userId = createUser();
+        filmStorage.addLike(createdFilm.getId(), userId);
+
+        var found = filmStorage.findById(createdFilm.getId(), FilmProjection.COUNTS);
+
+        assertThat(found)
+                .isPresent()
+                .hasValueSatisfying(f -> {
+                    assertThat(f.getLikes()).isNull();
+                    assertThat(f.getLikesCount()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void testRebuildLikesCount() {
+        Film film = filmStorage.create(buildFilm());
+        Integer user1 = createUser("user1");
+        Integer user2 = createUser("user2");
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?), (?, ?)",
+                film.getId(), user1, film.getId(), user2);
+
+        assertThat(likesCount(film.getId())).isZero();
+
+        filmStorage.rebuildLikesCount();
+
+        assertThat(likesCount(film.getId())).isEqualTo(2);
+    }
+
+    private Genre genre(int id) {
+        return new Genre(id, null);
+    }
+
+    private Integer likesCount(Integer filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
 }
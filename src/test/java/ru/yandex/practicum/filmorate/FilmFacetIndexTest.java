@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.FilmFacets;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.util.FilmFacetIndex;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FilmFacetIndexTest {
+
+    private FilmFacetIndex index() {
+        FilmFacetIndex index = new FilmFacetIndex();
+        index.put(1, 1975, 90, 1, List.of(1, 2));
+        index.put(2, 1999, 136, 4, List.of(4, 6));
+        index.put(3, 2010, 148, 3, List.of(4));
+        index.put(4, 2019, 122, 4, List.of(2, 4));
+        return index;
+    }
+
+    @Test
+    void filtersCombineWithAndAndValuesWithOr() {
+        FilmFacetIndex.Selection selection = index().select(List.of(4), List.of(3, 4), 2000, null, null);
+
+        assertThat(selection.films().stream().toArray()).containsExactly(3, 4);
+        assertThat(selection.genreCounts()).containsExactly(Map.entry(2, 1), Map.entry(4, 2));
+        assertThat(selection.mpaCounts()).containsExactly(Map.entry(3, 1), Map.entry(4, 1));
+    }
+
+    @Test
+    void rangesAreInclusive() {
+        FilmFacetIndex index = index();
+
+        assertThat(index.select(null, null, 1975, 1999, null).films().stream().toArray()).containsExactly(1, 2);
+        assertThat(index.select(null, null, null, null, 122).films().stream().toArray()).containsExactly(1, 4);
+        assertThat(index.select(List.of(99), null, null, null, null).films().isEmpty()).isTrue();
+    }
+
+    @Test
+    void putMovesFilmBetweenBitmaps() {
+        FilmFacetIndex index = index();
+
+        index.put(1, 2001, 100, 2, List.of(5));
+
+        assertThat(index.select(List.of(1), null, null, null, null).films().isEmpty()).isTrue();
+        assertThat(index.select(List.of(5), List.of(2), 2001, 2001, 100).films().stream().toArray())
+                .containsExactly(1);
+        assertThat(index.select(null, List.of(1), null, null, null).films().isEmpty()).isTrue();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void rangesApplyOnlyToFilmsLeftAfterGenreAndMpa() {
+        FilmFacetIndex index = index();
+        index.put(100_000, 2015, 95, 4, List.of(4));
+
+        assertThat(index.select(List.of(4), List.of(4), 2000, 2020, 130).films().stream().toArray())
+                .containsExactly(4, 100_000);
+        assertThat(index.select(List.of(4), null, null, 2010, 140).films().stream().toArray()).containsExactly(2);
+    }
+
+    @Test
+    void invertedRangeIsEmptyAndRejectedByService() {
+        assertThat(index().select(null, null, 2000, 1990, null).films().isEmpty()).isTrue();
+
+        FilmFacets facets = new FilmFacets(mock(FilmStorage.class));
+        assertThatThrownBy(() -> facets.select(null, null, 2000, 1990, null))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void idsAfterPagesWithoutOverflow() {
+        FilmFacetIndex.Selection selection = index().select(null, null, null, null, null);
+
+        assertThat(selection.idsAfter(null, 3)).containsExactly(1, 2, 3);
+        assertThat(selection.idsAfter(2, 10)).containsExactly(3, 4);
+        assertThat(selection.idsAfter(Integer.MAX_VALUE, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@AutoConfigureJson
+@Import({FilmDbStorage.class, MpaDbStorage.class, GenreDbStorage.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmJsonStreamingTest {
+
+    private final FilmDbStorage filmStorage;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    private List<Integer> ids;
+
+    @BeforeEach
+    void createFilms() {
+        // жанры не по порядку, фильм без жанров, кавычки и не-ASCII в тексте, дата до допустимой
+        Film first = filmStorage.create(buildFilm("Фильм \"первый\"", LocalDate.of(2000, 1, 1), 3, 1, 6));
+        Film second = filmStorage.create(buildFilm("Second\tfilm", LocalDate.of(1890, 5, 5)));
+        Film third = filmStorage.create(buildFilm("Третий", LocalDate.of(2020, 12, 31), 2));
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", third.getId());
+        ids = List.of(third.getId(), first.getId(), second.getId());
+    }
+
+    @Test
+    void writeAllMatchesJacksonSerialization() throws IOException {
+        assertThat(write(filmStorage::writeAll))
+                .isEqualTo(objectMapper.writeValueAsString(filmStorage.findAll(FilmProjection.COUNTS)));
+    }
+
+    @Test
+    void writeMostPopularMatchesJacksonSerialization() throws IOException {
+        assertThat(write(generator -> filmStorage.writeMostPopular(2, generator)))
+                .isEqualTo(objectMapper.writeValueAsString(filmStorage.findMostPopular(2, FilmProjection.COUNTS)));
+    }
+
+    @Test
+    void writeByIdsKeepsOrderOfIds() throws IOException {
+        assertThat(write(generator -> filmStorage.writeByIds(ids, generator)))
+                .isEqualTo(objectMapper.writeValueAsString(filmStorage.findByIds(ids, FilmProjection.COUNTS)));
+        assertThat(write(generator -> filmStorage.writeByIds(List.of(), generator))).isEqualTo("[]");
+    }
+
+    @Test
+    void writeByIdsSplitsLongListIntoChunks() throws IOException {
+        // несуществующие id разносят фильмы по разным частям списка
+        List<Integer> longIds = new ArrayList<>(Collections.nCopies(2500, -1));
+        longIds.set(0, ids.get(0));
+        longIds.set(1200, ids.get(1));
+        longIds.set(2499, ids.get(2));
+
+        assertThat(write(generator -> filmStorage.writeByIds(longIds, generator)))
+                .isEqualTo(objectMapper.writeValueAsString(filmStorage.findByIds(ids, FilmProjection.COUNTS)));
+    }
+
+    @Test
+    void referencesAreReadFromRequestJson() throws IOException {
+        Film film = objectMapper.readValue("""
+                {"name": "Фильм", "mpa": {"id": 2}, "genres": [{"id": 3}, {"id": 1, "name": "Комедия"}]}""", Film.class);
+
+        assertThat(film.getMpa()).isEqualTo(new Mpa(2, null));
+        assertThat(film.getGenres()).containsExactlyInAnyOrder(new Genre(3, null), new Genre(1, "Комедия"));
+    }
+
+    private String write(Consumer<JsonGenerator> writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            writer.accept(generator);
+        }
+        return out.toString();
+    }
+
+    private Film buildFilm(String name, LocalDate releaseDate, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(releaseDate);
+        film.setDuration(100);
+        film.setMpa(new Mpa(2, null));
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+}
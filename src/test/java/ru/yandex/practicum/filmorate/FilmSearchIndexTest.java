@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.util.TextNormalizer;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    @Test
+    void normalizationFoldsCaseYoAndEndings() {
+        assertThat(TextNormalizer.terms("Ёлки, ЁЛКИ и ёлка!")).containsExactly("елк");
+        assertThat(TextNormalizer.terms("Фильмы фильмов ФИЛЬМА")).containsExactly("фильм");
+        assertThat(TextNormalizer.terms("The Matrix 2")).containsExactly("the", "matrix");
+        assertThat(TextNormalizer.terms(null)).isEmpty();
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionThenPopularity() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        index.put(1, "Ирония судьбы", "Новогодняя комедия о бане");
+        index.put(2, "Служебный роман", "Комедия о любви в учреждении");
+        index.put(3, "Комедии нашего века", "Сборник");
+        index.put(4, "Брат", "Криминальная драма");
+        Map<Integer, Integer> likes = Map.of(1, 10, 2, 50);
+
+        assertThat(index.search("комедия", 10, UNLIMITED, id -> likes.getOrDefault(id, 0))).containsExactly(3, 2, 1);
+        assertThat(index.search("комедия любовь", 10, UNLIMITED, id -> likes.getOrDefault(id, 0))).startsWith(3);
+        assertThat(index.search("комедии", 1, UNLIMITED, id -> 0)).containsExactly(3);
+        assertThat(index.search("мюзикл", 10, UNLIMITED, id -> 0)).isEmpty();
+    }
+
+    @Test
+    void limitKeepsBestHitsInRankOrder() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        for (int id = 1; id <= 20; id++) {
+            index.put(id, id % 5 == 0 ? "Драма" : "Фильм", "Драма " + id);
+        }
+
+        assertThat(index.search("драма", 3, UNLIMITED, id -> id)).containsExactly(20, 15, 10);
+        assertThat(index.search("драма", 4, UNLIMITED, id -> id % 5 == 0 ? 0 : 2_000_000 + id))
+                .containsExactly(5, 10, 15, 20);
+        assertThat(index.search("драма", 6, UNLIMITED, id -> id % 5 == 0 ? 0 : 2_000_000 + id))
+                .containsExactly(5, 10, 15, 20, 1, 2);
+    }
+
+    @Test
+    void putReplacesPreviousTerms() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        index.put(1, "Старое название", "Описание");
+
+        index.put(1, "Новое название", "Описание");
+
+        assertThat(index.search("старое", 10, UNLIMITED, id -> 0)).isEmpty();
+        assertThat(index.search("новое", 10, UNLIMITED, id -> 0)).containsExactly(1);
+        assertThat(index.search("название", 10, UNLIMITED, id -> 0)).containsExactly(1);
+    }
+
+    @Test
+    void frequentTermsAreCutWhenPostingBudgetIsExhausted() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        for (int id = 1; id <= 5; id++) {
+            index.put(id, "The film " + id, null);
+        }
+        index.put(6, "The rare film", null);
+
+        // редкий терм берётся целиком, от частого - только начало списка в пределах бюджета
+        assertThat(index.search("the rare", 10, 3, id -> 0)).containsExactly(1, 2, 6);
+        assertThat(index.search("the rare", 10, 1, id -> 0)).containsExactly(6);
+        assertThat(index.search("the", 10, UNLIMITED, id -> 0)).containsExactly(1, 2, 3, 4, 5, 6);
+    }
+}
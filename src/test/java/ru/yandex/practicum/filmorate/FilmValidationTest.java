@@ -39,9 +39,7 @@ public class FilmValidationTest {
         film.setDescription("Short desc");
         film.setReleaseDate(LocalDate.of(2000, 1, 1));
         film.setDuration(120);
-        Mpa mpa = new Mpa();
-        mpa.setId(1);
-        film.setMpa(mpa);
+        film.setMpa(new Mpa(1, null));
 
         return film;
     }
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.FriendGraph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTest {
+
+    @Test
+    void friendsAreKeptSortedWithoutDuplicates() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 5);
+        graph.add(1, 3);
+        graph.add(1, 9);
+        graph.add(1, 3);
+        graph.add(40, 1);
+
+        assertThat(graph.friendsOf(1)).containsExactly(3, 5, 9);
+        assertThat(graph.friendsOf(40)).containsExactly(1);
+        assertThat(graph.friendsOf(2)).isEmpty();
+        assertThat(graph.edgeCount()).isEqualTo(4);
+    }
+
+    @Test
+    void removeDropsOnlyGivenEdge() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(2, 1);
+
+        graph.remove(1, 2);
+        graph.remove(1, 7);
+        graph.remove(99, 1);
+
+        assertThat(graph.friendsOf(1)).containsExactly(3);
+        assertThat(graph.friendsOf(2)).containsExactly(1);
+        assertThat(graph.edgeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void suggestRanksByMutualFriendsAndCapsHubs() {
+        FriendGraph graph = new FriendGraph();
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(1, 4);
+        graph.add(2, 5);
+        graph.add(2, 6);
+        graph.add(2, 1);
+        graph.add(3, 6);
+        graph.add(3, 4);
+        graph.add(4, 6);
+        graph.add(4, 5);
+        for (int i = 100; i < 110; i++) {
+            graph.add(4, i);
+        }
+
+        assertThat(graph.suggest(1, 10, 100, 1000)).startsWith(6, 5, 100);
+        assertThat(graph.suggest(1, 2, 100, 1000)).containsExactly(6, 5);
+        // у пользователя 4 слишком много друзей, раскрываются только первые пять его связей
+        assertThat(graph.suggest(1, 10, 5, 1000)).containsExactly(6, 5, 100, 101, 102);
+        assertThat(graph.suggest(1, 10, 1, 1000)).containsExactly(5);
+        assertThat(graph.suggest(9, 10, 100, 1000)).isEmpty();
+    }
+
+    @Test
+    void commonFriendsIsSortedIntersection() {
+        FriendGraph graph = new FriendGraph();
+        for (int friend : new int[]{2, 4, 6, 8, 10}) {
+            graph.add(1, friend);
+        }
+        for (int friend : new int[]{3, 4, 5, 10, 11}) {
+            graph.add(7, friend);
+        }
+
+        assertThat(graph.commonFriends(1, 7)).containsExactly(4, 10);
+        assertThat(graph.commonFriends(7, 1)).containsExactly(4, 10);
+        assertThat(graph.commonFriends(1, 500)).isEmpty();
+    }
+}
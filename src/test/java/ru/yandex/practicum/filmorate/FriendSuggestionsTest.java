@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FriendSuggestions;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipChangedEvent;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FriendSuggestionsTest {
+
+    private final FriendshipStorage storage = mock(FriendshipStorage.class);
+    private final FriendSuggestions suggestions = new FriendSuggestions(storage, 2);
+
+    @Test
+    void heavyUserIsCachedUntilFriendsChange() {
+        when(storage.getFriendsCount(1)).thenReturn(5);
+        when(storage.getSuggestedFriendsIds(1, FriendSuggestions.MAX_LIMIT))
+                .thenReturn(List.of(7, 8, 9))
+                .thenReturn(List.of(8, 9));
+
+        assertThat(suggestions.suggest(1, 2)).containsExactly(7, 8);
+        assertThat(suggestions.suggest(1, 10)).containsExactly(7, 8, 9);
+
+        suggestions.onFriendshipChanged(new FriendshipChangedEvent(1));
+
+        assertThat(suggestions.suggest(1, 10)).containsExactly(8, 9);
+        verify(storage, times(2)).getSuggestedFriendsIds(1, FriendSuggestions.MAX_LIMIT);
+    }
+
+    @Test
+    void refreshDropsUsersNotRequestedSinceLastRefresh() {
+        when(storage.getFriendsCount(1)).thenReturn(5);
+        when(storage.getSuggestedFriendsIds(1, FriendSuggestions.MAX_LIMIT)).thenReturn(List.of(7));
+        suggestions.suggest(1, 10);
+
+        suggestions.refreshHeavyUsers();
+        suggestions.refreshHeavyUsers();
+        suggestions.refreshHeavyUsers();
+
+        verify(storage, times(2)).getSuggestedFriendsIds(1, FriendSuggestions.MAX_LIMIT);
+    }
+
+    @Test
+    void lightUsersAreNotCached() {
+        when(storage.getFriendsCount(anyInt())).thenReturn(1);
+        when(storage.getSuggestedFriendsIds(3, 5)).thenReturn(List.of(4));
+
+        assertThat(suggestions.suggest(3, 5)).containsExactly(4);
+        suggestions.refreshHeavyUsers();
+
+        verify(storage, never()).getSuggestedFriendsIds(3, FriendSuggestions.MAX_LIMIT);
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.IndexedFriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({UserDbStorage.class, FriendshipDbStorage.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendshipDbStorageTest {
+
+    private final UserDbStorage userStorage;
+    private final FriendshipDbStorage friendshipStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testCommonFriendsIdsAreSorted() {
+        Integer alice = createUser("alice");
+        Integer bob = createUser("bob");
+        Integer carol = createUser("carol");
+        Integer dave = createUser("dave");
+        Integer erin = createUser("erin");
+        friendshipStorage.addFriend(alice, erin);
+        friendshipStorage.addFriend(alice, carol);
+        friendshipStorage.addFriend(alice, dave);
+        friendshipStorage.addFriend(bob, erin);
+        friendshipStorage.addFriend(bob, carol);
+
+        assertThat(friendshipStorage.getCommonFriendsIds(alice, bob)).containsExactly(carol, erin);
+        assertThat(friendshipStorage.getFriendsIds(alice)).containsExactly(carol, dave, erin);
+    }
+
+    @Test
+    void testSuggestionsRankByMutualFriends() {
+        Integer alice = createUser("alice");
+        Integer bob = createUser("bob");
+        Integer carol = createUser("carol");
+        Integer dave = createUser("dave");
+        Integer erin = createUser("erin");
+        friendshipStorage.addFriend(alice, bob);
+        friendshipStorage.addFriend(alice, carol);
+        friendshipStorage.addFriend(bob, alice);
+        friendshipStorage.addFriend(bob, dave);
+        friendshipStorage.addFriend(bob, erin);
+        friendshipStorage.addFriend(carol, erin);
+        friendshipStorage.addFriend(carol, bob);
+
+        assertThat(friendshipStorage.getSuggestedFriendsIds(alice, 10)).containsExactly(erin, dave);
+        assertThat(friendshipStorage.getSuggestedFriendsIds(alice, 1)).containsExactly(erin);
+        assertThat(friendshipStorage.getFriendsCount(bob)).isEqualTo(3);
+
+        IndexedFriendshipStorage indexed = new IndexedFriendshipStorage(friendshipStorage);
+        ReflectionTestUtils.setField(indexed, "maxNeighbourDegree", 100);
+        ReflectionTestUtils.setField(indexed, "maxVisited", 1000);
+        indexed.rebuild();
+        assertThat(indexed.getSuggestedFriendsIds(alice, 10)).containsExactly(erin, dave);
+        assertThat(indexed.getFriendsCount(bob)).isEqualTo(3);
+    }
+
+    @Test
+    void testSuggestionsRespectTraversalLimitsInDatabase() {
+        Integer alice = createUser("alice");
+        Integer bob = createUser("bob");
+        Integer carol = createUser("carol");
+        Integer dave = createUser("dave");
+        Integer erin = createUser("erin");
+        Integer frank = createUser("frank");
+        friendshipStorage.addFriend(alice, bob);
+        friendshipStorage.addFriend(alice, carol);
+        friendshipStorage.addFriend(bob, dave);
+        friendshipStorage.addFriend(bob, erin);
+        friendshipStorage.addFriend(bob, frank);
+        friendshipStorage.addFriend(carol, frank);
+
+        ReflectionTestUtils.setField(friendshipStorage, "maxNeighbourDegree", 1);
+        ReflectionTestUtils.setField(friendshipStorage, "maxVisited", 1000);
+        assertThat(friendshipStorage.getSuggestedFriendsIds(alice, 10)).containsExactly(dave, frank);
+
+        ReflectionTestUtils.setField(friendshipStorage, "maxNeighbourDegree", 100);
+        ReflectionTestUtils.setField(friendshipStorage, "maxVisited", 2);
+        assertThat(friendshipStorage.getSuggestedFriendsIds(alice, 10)).containsExactly(dave, erin);
+
+        ReflectionTestUtils.setField(friendshipStorage, "maxVisited", 1000);
+        assertThat(friendshipStorage.getSuggestedFriendsIds(alice, 10)).containsExactly(frank, dave, erin);
+    }
+
+    @Test
+    void testIndexedStorageMatchesDatabase() {
+        Integer alice = createUser("alice");
+        Integer bob = createUser("bob");
+        Integer carol = createUser("carol");
+        friendshipStorage.addFriend(alice, carol);
+        friendshipStorage.addFriend(bob, carol);
+
+        IndexedFriendshipStorage indexed = new IndexedFriendshipStorage(friendshipStorage);
+        indexed.rebuild();
+        indexed.addFriend(alice, bob);
+        indexed.removeFriend(bob, carol);
+
+        assertThat(indexed.getFriendsIds(alice)).containsExactlyElementsOf(friendshipStorage.getFriendsIds(alice));
+        assertThat(indexed.getFriendsIds(bob)).isEmpty();
+        assertThat(indexed.getCommonFriendsIds(alice, bob))
+                .containsExactlyElementsOf(friendshipStorage.getCommonFriendsIds(alice, bob));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testConcurrentAddAndRemoveKeepIndexInSyncWithDatabase() throws Exception {
+        Integer user = createUser("racer-user");
+        Integer friend = createUser("racer-friend");
+        IndexedFriendshipStorage indexed = new IndexedFriendshipStorage(friendshipStorage);
+        indexed.rebuild();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> add = executor.submit(() -> {
+                    start.await();
+                    indexed.addFriend(user, friend);
+                    return null;
+                });
+                Future<?> remove = executor.submit(() -> {
+                    start.await();
+                    indexed.removeFriend(user, friend);
+                    return null;
+                });
+                start.countDown();
+                add.get();
+                remove.get();
+
+                assertThat(indexed.getFriendsIds(user)).containsExactlyElementsOf(friendshipStorage.getFriendsIds(user));
+            }
+        } finally {
+            executor.shutdownNow();
+            // тест идёт вне транзакции теста, поэтому убирает за собой сам
+            friendshipStorage.removeFriend(user, friend);
+            jdbcTemplate.update("DELETE FROM users WHERE id IN (?, ?)", user, friend);
+        }
+    }
+
+    private Integer createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return userStorage.create(user).getId();
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpHeaders;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+import ru.yandex.practicum.filmorate.logging.AsyncSink;
+import ru.yandex.practicum.filmorate.logging.SamplingStrategy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HttpLogTest {
+
+    private final Sink sink = mock(Sink.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void mostSpecificRouteDecidesSampling() throws Exception {
+        SamplingStrategy strategy = new SamplingStrategy(0.0,
+                Map.of("/films/**", 0.0, "/films/{id}", 1.0), Duration.ofSeconds(1));
+        HttpResponse response = response(200);
+
+        HttpRequest sampled = strategy.process(request("/films/1"));
+        strategy.process(sampled, response);
+        strategy.write(correlation(Duration.ZERO), sampled, response, sink);
+
+        verify(response).withBody();
+        verify(sink).writeBoth(any(), any(), any());
+    }
+
+    @Test
+    void unsampledResponseIsNotBufferedAndNotWritten() throws Exception {
+        SamplingStrategy strategy = new SamplingStrategy(1.0, Map.of("/films", 0.0), Duration.ofSeconds(1));
+        HttpResponse response = response(200);
+
+        HttpRequest request = strategy.process(request("/films"));
+        strategy.process(request, response);
+        strategy.write(correlation(Duration.ZERO), request, response, sink);
+
+        verify(response).withoutBody();
+        verify(sink, never()).writeBoth(any(), any(), any());
+    }
+
+    @Test
+    void errorsAndSlowRequestsAreAlwaysWritten() throws Exception {
+        SamplingStrategy strategy = new SamplingStrategy(0.0, Map.of(), Duration.ofMillis(500));
+
+        HttpRequest request = strategy.process(request("/users"));
+        strategy.write(correlation(Duration.ZERO), request, response(200), sink);
+        strategy.write(correlation(Duration.ZERO), request, response(404), sink);
+        strategy.write(correlation(Duration.ofSeconds(1)), request, response(200), sink);
+
+        verify(sink, times(2)).writeBoth(any(), any(), any());
+    }
+
+    @Test
+    void fullQueueDropsEntriesWithoutBlocking() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(sink).writeBoth(any(), any(), any());
+        AsyncSink asyncSink = new AsyncSink(sink, 1, registry);
+
+        asyncSink.writeBoth(correlation(Duration.ZERO), request("/films"), response(200));
+        writing.await();
+        asyncSink.writeBoth(correlation(Duration.ZERO), request("/films"), response(200));
+        asyncSink.writeBoth(correlation(Duration.ZERO), request("/films"), response(200));
+
+        assertThat(registry.get(AsyncSink.DROPPED_METRIC).counter().count()).isEqualTo(1);
+        assertThat(registry.get(AsyncSink.QUEUE_METRIC).gauge().value()).isEqualTo(1);
+        release.countDown();
+        asyncSink.close();
+        verify(sink, times(2)).writeBoth(any(), any(), any());
+    }
+
+    private HttpRequest request(String path) throws Exception {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getPath()).thenReturn(path);
+        when(request.getHeaders()).thenReturn(HttpHeaders.empty());
+        when(request.getBody()).thenReturn(new byte[0]);
+        when(request.withBody()).thenReturn(request);
+        return request;
+    }
+
+    private HttpResponse response(int status) throws Exception {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        when(response.getHeaders()).thenReturn(HttpHeaders.empty());
+        when(response.getBody()).thenReturn(new byte[0]);
+        return response;
+    }
+
+    private Correlation correlation(Duration duration) {
+        Correlation correlation = mock(Correlation.class);
+        when(correlation.getId()).thenReturn("test");
+        when(correlation.getDuration()).thenReturn(duration);
+        return correlation;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запуск поверх базы, созданной до миграций прежними schema.sql и data.sql (test/resources/legacy):
+ * Flyway принимает её как версию 0 и должен довести схему до текущей, не потеряв данных.
+ */
+@SpringBootTest
+class LegacySchemaMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FilmService filmService;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("legacy/schema.sql"),
+                new ClassPathResource("legacy/data.sql")).execute(dataSource);
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("INSERT INTO users (id, email, login, name, birthday) VALUES (1, 'a@mail.ru', 'a', 'a', '2000-01-01')");
+        legacy.update("INSERT INTO films (id, name, description, release_date, duration, mpa_id) " +
+                "VALUES (1, 'Старый фильм', 'Описание', '2000-01-01', 100, 1)");
+        legacy.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 1)");
+
+        registry.add("spring.datasource.url", () -> URL);
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    void legacyDatabaseIsMigratedAndLikesAreCounted() {
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(\"version\") FROM \"flyway_schema_history\"", String.class))
+                .isEqualTo("2");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.indexes " +
+                "WHERE index_name = 'IDX_FILMS_LIKES_COUNT'", Integer.class)).isPositive();
+
+        Film film = filmService.getById(1, FilmProjection.COUNTS);
+        assertThat(film.getName()).isEqualTo("Старый фильм");
+        assertThat(film.getLikesCount()).isEqualTo(1);
+        assertThat(filmService.getPopular(10, FilmProjection.COUNTS)).extracting(Film::getId).containsExactly(1);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.service.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikeWriteBufferTest {
+
+    private final FilmStorage filmStorage = mock(FilmStorage.class);
+    private final PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+    private final FilmRecommendations recommendations = new FilmRecommendations(filmStorage);
+
+    @Test
+    void togglesOnSamePairCollapseToLastState() {
+        when(filmStorage.applyLikes(anyList())).thenReturn(Map.of(1, 1));
+        LikeWriteBuffer buffer = new LikeWriteBuffer(filmStorage, leaderboard, recommendations, true, 100);
+
+        buffer.submit(1, 10, true);
+        buffer.submit(1, 10, false);
+        buffer.submit(1, 10, true);
+        buffer.submit(1, 11, false);
+        assertThat(buffer.size()).isEqualTo(2);
+
+        buffer.flush();
+
+        verify(filmStorage).applyLikes(List.of(new LikeChange(1, 10, true), new LikeChange(1, 11, false)));
+        assertThat(buffer.size()).isZero();
+        assertThat(leaderboard.top(1)).containsExactly(1);
+    }
+
+    @Test
+    void fullBufferIsFlushedByCaller() {
+        when(filmStorage.applyLikes(anyList())).thenReturn(Map.of());
+        LikeWriteBuffer buffer = new LikeWriteBuffer(filmStorage, leaderboard, recommendations, true, 2);
+
+        buffer.submit(1, 10, true);
+        buffer.submit(2, 10, true);
+        buffer.submit(2, 10, false);
+        verify(filmStorage, never()).applyLikes(anyList());
+
+        buffer.submit(3, 10, true);
+
+        verify(filmStorage, times(1)).applyLikes(anyList());
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFlushKeepsChanges() {
+        when(filmStorage.applyLikes(anyList())).thenThrow(new IllegalStateException("db down"));
+        LikeWriteBuffer buffer = new LikeWriteBuffer(filmStorage, leaderboard, recommendations, true, 100);
+        buffer.submit(1, 10, true);
+
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LikesIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikesIndexTest {
+
+    @Test
+    void recommendsFilmsOfMostSimilarUsers() {
+        LikesIndex index = new LikesIndex();
+        like(index, 1, 10, 11, 12);
+        like(index, 2, 10, 11, 12, 20, 21);
+        like(index, 3, 10, 21, 30);
+        like(index, 4, 40);
+
+        assertThat(index.recommend(1, 10, 10, 100, 1000)).containsExactly(21, 20, 30);
+        assertThat(index.recommend(1, 1, 10, 100, 1000)).containsExactly(21);
+        // остаётся только ближайший сосед
+        assertThat(index.recommend(1, 10, 1, 100, 1000)).containsExactly(20, 21);
+        assertThat(index.recommend(4, 10, 10, 100, 1000)).isEmpty();
+        assertThat(index.recommend(99, 10, 10, 100, 1000)).isEmpty();
+    }
+
+    @Test
+    void removeUpdatesBothDirections() {
+        LikesIndex index = new LikesIndex();
+        like(index, 1, 10);
+        like(index, 2, 10, 20);
+
+        index.remove(2, 10);
+        index.remove(2, 10);
+
+        assertThat(index.likeCount()).isEqualTo(2);
+        assertThat(index.recommend(1, 10, 10, 100, 1000)).isEmpty();
+    }
+
+    @Test
+    void popularFilmsAreNotUsedToFindNeighbours() {
+        LikesIndex index = new LikesIndex();
+        like(index, 1, 10, 11);
+        like(index, 2, 10, 20);
+        like(index, 3, 10, 11, 30);
+        like(index, 4, 10);
+
+        assertThat(index.recommend(1, 10, 10, 3, 1000)).containsExactly(30);
+    }
+
+    private void like(LikesIndex index, int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            index.add(userId, filmId);
+        }
+    }
+}
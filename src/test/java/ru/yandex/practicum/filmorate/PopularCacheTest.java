@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "filmorate.popular.cache-ttl-ms=60000")
+@AutoConfigureTestDatabase
+class PopularCacheTest {
+
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void likesReplaceCachedListInsteadOfAddingEntries() {
+        Film film = filmService.create(buildFilm());
+        User user = userService.create(buildUser());
+
+        for (int i = 0; i < 20; i++) {
+            filmService.getPopular(10, FilmProjection.COUNTS);
+            filmService.addLike(film.getId(), user.getId());
+            assertThat(likesOf(film)).isEqualTo(1);
+            filmService.removeLike(film.getId(), user.getId());
+            assertThat(likesOf(film)).isZero();
+        }
+
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(
+                (Object) AopTestUtils.getUltimateTargetObject(filmService), "popularCache");
+        assertThat(cache).hasSize(1);
+    }
+
+    // устаревшая по версии запись - промах, поэтому счётчик сразу отражает последний лайк
+    private int likesOf(Film film) {
+        return filmService.getPopular(10, FilmProjection.COUNTS).stream()
+                .filter(f -> f.getId().equals(film.getId()))
+                .findFirst().orElseThrow()
+                .getLikesCount();
+    }
+
+    private static Film buildFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+
+    private static User buildUser() {
+        User user = new User();
+        user.setEmail("popular@mail.ru");
+        user.setLogin("popular");
+        user.setName("popular");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+}
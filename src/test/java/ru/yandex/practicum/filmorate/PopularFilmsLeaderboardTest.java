@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.PopularFilmsLeaderboard;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularFilmsLeaderboardTest {
+
+    @Test
+    void topOrdersByLikesThenById() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 0, 2, 5, 3, 5, 4, 1));
+
+        assertThat(leaderboard.isLoaded()).isTrue();
+        assertThat(leaderboard.top(3)).containsExactly(2, 3, 4);
+    }
+
+    @Test
+    void changeLikesMovesFilm() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 1, 2, 2));
+        leaderboard.register(3);
+
+        leaderboard.changeLikes(1, 2);
+        leaderboard.changeLikes(2, -1);
+
+        assertThat(leaderboard.top(10)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void likesNeverGoBelowZero() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.register(1);
+        leaderboard.register(2);
+
+        leaderboard.changeLikes(2, -1);
+        leaderboard.changeLikes(1, 1);
+
+        assertThat(leaderboard.top(2)).containsExactly(1, 2);
+    }
+
+    @Test
+    void reloadOverridesDrift() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 3, 2, 1));
+        leaderboard.changeLikes(2, 5);
+
+        leaderboard.reload(() -> Map.of(1, 3, 2, 1));
+
+        assertThat(leaderboard.top(2)).containsExactly(1, 2);
+    }
+
+    @Test
+    void hugeCountReturnsWholeRanking() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 3, 2, 1));
+
+        assertThat(leaderboard.top(Integer.MAX_VALUE)).containsExactly(1, 2);
+    }
+
+    @Test
+    void reloadKeepsChangesMadeWhileSnapshotWasRead() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 1, 2, 2));
+
+        // лайк фильму 1 закоммичен уже после того, как снимок прочитал его старый счётчик
+        leaderboard.reload(() -> {
+            leaderboard.changeLikes(1, 2);
+            return Map.of(1, 1, 2, 2);
+        });
+
+        assertThat(leaderboard.likes(1)).isEqualTo(3);
+        assertThat(leaderboard.top(10)).containsExactly(1, 2);
+    }
+
+    @Test
+    void reloadDropsFilmsMissingFromSnapshot() {
+        PopularFilmsLeaderboard leaderboard = new PopularFilmsLeaderboard();
+        leaderboard.reload(() -> Map.of(1, 1, 2, 2, 3, 3));
+
+        leaderboard.reload(() -> {
+            leaderboard.register(4);
+            return Map.of(1, 1, 2, 2);
+        });
+
+        assertThat(leaderboard.top(10)).containsExactly(2, 1, 4);
+        assertThat(leaderboard.likes(3)).isZero();
+    }
+}
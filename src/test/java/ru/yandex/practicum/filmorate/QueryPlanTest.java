@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.LikeChange;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Прогоняет все запросы хранилищ, перехватывает их SQL и проверяет план через EXPLAIN:
+ * запрос с условием WHERE или с LIMIT не должен читать таблицу целиком, а запрос с ORDER BY ... LIMIT
+ * должен брать строки из индекса уже в нужном порядке, без сортировки всей таблицы.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmDbStorage.class, MpaDbStorage.class, GenreDbStorage.class, UserDbStorage.class,
+        FriendshipDbStorage.class, QueryPlanTest.RecordingConfig.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+
+    // полный проход по таблице здесь и есть цель запроса
+    private static final Set<String> INTENTIONAL_SCANS = Set.of(
+            "UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)"
+    );
+
+    private static final JsonGenerator JSON_SINK = jsonSink();
+
+    private static final Set<String> RECORDED = ConcurrentHashMap.newKeySet();
+    private static volatile boolean recording;
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FriendshipDbStorage friendshipStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void queriesWithConditionsOrLimitsUseIndexes() {
+        recording = true;
+        try {
+            exerciseStorages();
+        } finally {
+            recording = false;
+        }
+
+        List<String> scans = new ArrayList<>();
+        for (String sql : RECORDED) {
+            String normalized = sql.replaceAll("\\s+", " ").trim();
+            String upper = normalized.toUpperCase();
+            // сортировку по агрегату индекс обслужить не может - там достаточно отсутствия полного сканирования
+            boolean limited = upper.contains(" LIMIT ") && !upper.contains(" GROUP BY ");
+            if (!upper.contains(" WHERE ") && !limited || INTENTIONAL_SCANS.contains(normalized)) continue;
+            String plan = explain(sql);
+            if (plan.contains("tableScan") || limited && !plan.contains("index sorted")) {
+                scans.add(normalized + "\n    план: " + plan.replaceAll("\\s+", " "));
+            }
+        }
+
+        assertThat(RECORDED).isNotEmpty();
+        assertThat(scans).as("запросы с полным сканированием или сортировкой таблиц").isEmpty();
+        assertThat(RECORDED).as("запросы популярных фильмов")
+                .filteredOn(sql -> sql.contains("ORDER BY f.likes_count DESC"))
+                .isNotEmpty()
+                .allSatisfy(sql -> assertThat(explain(sql)).containsIgnoringCase("idx_films_likes_count"));
+    }
+
+    private void exerciseStorages() {
+        User alice = userStorage.create(buildUser("alice"));
+        User bob = userStorage.create(buildUser("bob"));
+        User carol = userStorage.create(buildUser("carol"));
+        alice.setName("Alice");
+        userStorage.update(alice);
+        userStorage.findAll();
+        userStorage.findPage(0, 10);
+        userStorage.findById(alice.getId());
+        userStorage.findAllByIds(List.of(alice.getId(), bob.getId()));
+        userStorage.exists(alice.getId());
+
+        friendshipStorage.addFriend(alice.getId(), bob.getId());
+        friendshipStorage.addFriend(bob.getId(), carol.getId());
+        friendshipStorage.addFriend(carol.getId(), bob.getId());
+        friendshipStorage.removeFriend(carol.getId(), bob.getId());
+        friendshipStorage.getFriendsIds(alice.getId());
+        friendshipStorage.getCommonFriendsIds(alice.getId(), carol.getId());
+        friendshipStorage.getFriendsCount(alice.getId());
+        friendshipStorage.getSuggestedFriendsIds(alice.getId(), 10);
+        friendshipStorage.forEachFriendship((userId, friendId) -> { });
+
+        Film film = filmStorage.create(buildFilm());
+        Film other = filmStorage.createAll(List.of(buildFilm(), buildFilm())).getFirst();
+        film.setName("Updated");
+        filmStorage.update(film);
+        filmStorage.findAll(FilmProjection.FULL);
+        filmStorage.findPage(0, 10, FilmProjection.FULL);
+        filmStorage.findById(film.getId(), FilmProjection.FULL);
+        filmStorage.findByIds(List.of(film.getId(), other.getId()), FilmProjection.FULL);
+        filmStorage.exportAll(FilmProjection.FULL, f -> { });
+        filmStorage.exportAll(FilmProjection.COUNTS, f -> { });
+        filmStorage.writeAll(JSON_SINK);
+        filmStorage.writeMostPopular(10, JSON_SINK);
+        filmStorage.writeByIds(List.of(film.getId(), other.getId()), JSON_SINK);
+        filmStorage.exists(film.getId());
+        filmStorage.addLike(film.getId(), alice.getId());
+        filmStorage.removeLike(film.getId(), alice.getId());
+        filmStorage.applyLikes(List.of(new LikeChange(other.getId(), bob.getId(), true),
+                new LikeChange(film.getId(), bob.getId(), false)));
+        filmStorage.findMostPopular(10, FilmProjection.FULL);
+        filmStorage.rebuildLikesCount();
+        filmStorage.findLikesCounts();
+        filmStorage.forEachLike((filmId, userId) -> { });
+    }
+
+    private static JsonGenerator jsonSink() {
+        try {
+            return new JsonFactory().createGenerator(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // параметры подставляются единицами: для плана важны только индексы, а не значения
+    private String explain(String sql) {
+        int parameters = (int) sql.chars().filter(c -> c == '?').count();
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 1; i <= parameters; i++) {
+                    ps.setInt(i, 1);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+
+    private User buildUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private Film buildFilm() {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        return film;
+    }
+
+    @TestConfiguration
+    static class RecordingConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? recording(dataSource) : bean;
+                }
+            };
+        }
+
+        private static DataSource recording(DataSource target) {
+            return proxy(DataSource.class, target, (method, args) -> {
+                if (method.getName().equals("getConnection")) {
+                    return recording((Connection) method.invoke(target, args));
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        private static Connection recording(Connection target) {
+            return proxy(Connection.class, target, (method, args) -> {
+                if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                    record(sql);
+                }
+                Object result = method.invoke(target, args);
+                if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                    return recording(statement);
+                }
+                return result;
+            });
+        }
+
+        private static Statement recording(Statement target) {
+            return proxy(Statement.class, target, (method, args) -> {
+                if (method.getName().startsWith("execute") && args != null && args[0] instanceof String sql) {
+                    record(sql);
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        private static void record(String sql) {
+            if (recording && !sql.startsWith("EXPLAIN")) {
+                RECORDED.add(sql);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Invocation invocation) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                try {
+                    return invocation.invoke(method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        private interface Invocation {
+            Object invoke(Method method, Object[] args) throws Throwable;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.util.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void addRegistry() {
+        Metrics.globalRegistry.add(registry);
+    }
+
+    @AfterEach
+    void removeRegistry() {
+        Metrics.globalRegistry.remove(registry);
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        CountDownLatch started = new CountDownLatch(callers);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    return flight.load(1, () -> {
+                        loads.incrementAndGet();
+                        await(release);
+                        return "film";
+                    });
+                }));
+            }
+            // загрузка первого вызова держится, пока остальные не присоединятся к ней
+            started.await();
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("film");
+            }
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(registry.get(SingleFlight.METRIC).tag("name", "test").summary().totalAmount())
+                .isEqualTo(callers - 1);
+    }
+
+    @Test
+    void failureIsPropagatedAndNextCallLoadsAgain() {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test");
+
+        assertThatThrownBy(() -> flight.load(1, () -> {
+            throw new NotFoundException("Фильм с id 1 не найден");
+        })).isInstanceOf(NotFoundException.class);
+
+        assertThat(flight.load(1, () -> "film")).isEqualTo("film");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
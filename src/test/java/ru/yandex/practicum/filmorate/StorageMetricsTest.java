@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import ru.yandex.practicum.filmorate.config.StorageMetricsPostProcessor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmDbStorage.class, MpaDbStorage.class, GenreDbStorage.class, UserDbStorage.class,
+        StorageMetricsPostProcessor.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class StorageMetricsTest {
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final MpaDbStorage mpaStorage;
+    private final GenreDbStorage genreStorage;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void addRegistry() {
+        Metrics.globalRegistry.add(registry);
+    }
+
+    @AfterEach
+    void removeRegistry() {
+        Metrics.globalRegistry.remove(registry);
+    }
+
+    @Test
+    void testStorageMethodsAreTimedByStorageAndOperation() {
+        assertThat(AopUtils.isCglibProxy(userStorage)).isTrue();
+
+        User user = userStorage.create(buildUser());
+        userStorage.findById(user.getId());
+        userStorage.findById(user.getId());
+
+        assertThat(registry.get(StorageMetricsPostProcessor.METRIC)
+                .tags("storage", "UserDbStorage", "operation", "findById", "exception", "none")
+                .timer().count()).isEqualTo(2);
+        assertThat(registry.get(StorageMetricsPostProcessor.METRIC)
+                .tags("storage", "UserDbStorage", "operation", "create")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedCallsAreTaggedWithException() {
+        User user = userStorage.create(buildUser());
+
+        assertThatThrownBy(() -> userStorage.create(buildUser())).isInstanceOf(DataAccessException.class);
+
+        assertThat(registry.get(StorageMetricsPostProcessor.METRIC)
+                .tags("storage", "UserDbStorage", "operation", "create", "exception", "DuplicateKeyException")
+                .timer().count()).isEqualTo(1);
+        assertThat(user.getId()).isNotNull();
+    }
+
+    @Test
+    void testLoadedGenreAndLikeRowsAreRecorded() {
+        User user = userStorage.create(buildUser());
+        Film film = filmStorage.create(buildFilm(1, 2));
+        filmStorage.addLike(film.getId(), user.getId());
+
+        filmStorage.findByIds(List.of(film.getId()), FilmProjection.FULL);
+
+        assertThat(registry.get(StorageMetricsPostProcessor.METRIC + ".rows")
+                .tags("storage", "FilmDbStorage", "query", "loadGenres")
+                .summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get(StorageMetricsPostProcessor.METRIC + ".rows")
+                .tags("storage", "FilmDbStorage", "query", "loadLikes")
+                .summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    void testInMemoryDictionariesAreNotTimed() {
+        assertThat(AopUtils.isAopProxy(mpaStorage)).isFalse();
+        assertThat(AopUtils.isAopProxy(genreStorage)).isFalse();
+
+        Film film = filmStorage.create(buildFilm(1, 2));
+        filmStorage.findById(film.getId(), FilmProjection.COUNTS);
+
+        assertThat(registry.find(StorageMetricsPostProcessor.METRIC).tag("storage", "MpaDbStorage").timers())
+                .isEmpty();
+        assertThat(registry.find(StorageMetricsPostProcessor.METRIC).tag("storage", "GenreDbStorage").timers())
+                .isEmpty();
+    }
+
+    private User buildUser() {
+        User user = new User();
+        user.setEmail("metrics@mail.ru");
+        user.setLogin("metrics");
+        user.setName("Metrics");
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
+
+    private Film buildFilm(int... genreIds) {
+        Film film = new Film();
+        film.setName("Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+}
@@ -11,7 +11,10 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -110,4 +113,43 @@ class UserDbStorageTest {
         assertThat(userStorage.exists(created.getId())).isTrue();
         assertThat(userStorage.exists(9999)).isFalse();
     }
+
+    @Test
+    void testFindPageUsesIdCursor() {
+        User first = userStorage.create(buildUser("first"));
+        User second = userStorage.create(buildUser("second"));
+        User third = userStorage.create(buildUser("third"));
+
+        assertThat(userStorage.findPage(first.getId(), 1))
+                .extracting(User::getId)
+                .containsExactly(second.getId());
+        assertThat(userStorage.findPage(second.getId(), 5))
+                .extracting(User::getId)
+                .containsExactly(third.getId());
+    }
+
+    @Test
+    void testFindAllByIdsKeepsOrderAcrossChunks() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            ids.add(userStorage.create(buildUser("user" + i)).getId());
+        }
+        Collections.reverse(ids);
+        ids.add(1, -1);
+
+        List<User> found = userStorage.findAllByIds(ids);
+
+        assertThat(found).hasSize(1200);
+        assertThat(found).extracting(User::getId).containsExactlyElementsOf(ids.stream().filter(id -> id > 0).toList());
+        assertThat(found.get(0).getLogin()).isEqualTo("user1199");
+    }
+
+    private User buildUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(2000, 1, 1));
+        return user;
+    }
 }